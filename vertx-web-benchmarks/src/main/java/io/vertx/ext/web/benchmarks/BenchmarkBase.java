@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class of the routing benchmarks, routers are driven with {@link FakeHttpServerRequest} so only the routing
+ * itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public abstract class BenchmarkBase {
+
+  static final Handler<RoutingContext> OK = ctx -> ctx.response().end();
+
+  protected Vertx vertx;
+
+  @Setup(Level.Trial)
+  public void setupVertx() {
+    vertx = Vertx.vertx();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownVertx() {
+    vertx.close();
+  }
+
+  static FakeHttpServerRequest request(HttpMethod method, String uri) {
+    return new FakeHttpServerRequest(method, uri);
+  }
+
+  /**
+   * Routes the request and returns the status code of the response.
+   */
+  static int route(Router router, FakeHttpServerRequest request) {
+    router.handle(request.reset());
+    return request.response().getStatusCode();
+  }
+
+  /**
+   * Checks that a request is routed as expected before measuring it.
+   */
+  static void check(Router router, FakeHttpServerRequest request, int expected) {
+    int status = route(router, request);
+    if (status != expected || !request.response().ended()) {
+      throw new IllegalStateException(request.method() + " " + request.uri() + " returned " + status + " instead of " + expected);
+    }
+  }
+}
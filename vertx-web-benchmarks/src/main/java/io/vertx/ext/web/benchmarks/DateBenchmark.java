@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.ext.web.impl.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Measures the formatting of the {@code Date} header sent with every static response, the current date is cached
+ * for the length of its second.
+ */
+public class DateBenchmark extends BenchmarkBase {
+
+  private static final ZoneId ZONE_GMT = ZoneId.of("GMT");
+
+  @Benchmark
+  public String formatted() {
+    return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(System.currentTimeMillis()).atZone(ZONE_GMT));
+  }
+
+  @Benchmark
+  public String cached() {
+    return Utils.currentRFC1123DateTime();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String cachedContended() {
+    return Utils.currentRFC1123DateTime();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the paths where routing fails: no route matching, a route matching another method and handlers failing
+ * the context with or without a failure handler.
+ */
+public class FailureBenchmark extends BenchmarkBase {
+
+  @Param({"10", "100", "1000"})
+  public int routes;
+
+  private Router router;
+  private FakeHttpServerRequest notFound;
+  private FakeHttpServerRequest methodNotAllowed;
+  private FakeHttpServerRequest failureHandler;
+  private FakeHttpServerRequest unhandledFailure;
+
+  @Setup
+  public void setup() {
+    router = Router.router(vertx);
+    for (int i = 0; i < routes; i++) {
+      router.get("/resource" + i + "/:id").handler(OK);
+    }
+    router.get("/failing/handled")
+      .handler(ctx -> ctx.fail(503))
+      .failureHandler(ctx -> ctx.response().setStatusCode(ctx.statusCode()).end());
+    router.get("/failing/unhandled")
+      .handler(ctx -> ctx.fail(503));
+
+    notFound = request(HttpMethod.GET, "/missing/42");
+    methodNotAllowed = request(HttpMethod.DELETE, "/resource" + (routes - 1) + "/42");
+    failureHandler = request(HttpMethod.GET, "/failing/handled");
+    unhandledFailure = request(HttpMethod.GET, "/failing/unhandled");
+
+    check(router, notFound, 404);
+    check(router, methodNotAllowed, 405);
+    check(router, failureHandler, 503);
+    check(router, unhandledFailure, 503);
+  }
+
+  @Benchmark
+  public int notFound() {
+    return route(router, notFound);
+  }
+
+  @Benchmark
+  public int methodNotAllowed() {
+    return route(router, methodNotAllowed);
+  }
+
+  @Benchmark
+  public int failureHandler() {
+    return route(router, failureHandler);
+  }
+
+  @Benchmark
+  public int unhandledFailure() {
+    return route(router, unhandledFailure);
+  }
+}
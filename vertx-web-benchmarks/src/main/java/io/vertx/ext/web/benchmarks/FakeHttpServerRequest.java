@@ -0,0 +1,297 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.codegen.annotations.Nullable;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.*;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.SocketAddress;
+
+import javax.net.ssl.SSLSession;
+import javax.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A request that is not bound to a connection, the router can be driven with it without any network I/O.
+ * <p>
+ * A request is meant to be reused across invocations, {@link #reset()} must be called before it is handed to a
+ * router again.
+ */
+public class FakeHttpServerRequest implements HttpServerRequest {
+
+  private final HttpMethod method;
+  private final String uri;
+  private final String path;
+  private final String query;
+  private final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+  private final FakeHttpServerResponse response = new FakeHttpServerResponse();
+  private MultiMap params;
+
+  public FakeHttpServerRequest(HttpMethod method, String uri) {
+    this.method = method;
+    this.uri = uri;
+    int queryIndex = uri.indexOf('?');
+    if (queryIndex == -1) {
+      path = uri;
+      query = null;
+    } else {
+      path = uri.substring(0, queryIndex);
+      query = uri.substring(queryIndex + 1);
+    }
+  }
+
+  /**
+   * Adds a header to the request.
+   */
+  public FakeHttpServerRequest header(CharSequence name, CharSequence value) {
+    headers.add(name, value);
+    return this;
+  }
+
+  /**
+   * Clears the state left by the previous invocation.
+   */
+  public FakeHttpServerRequest reset() {
+    if (params != null) {
+      params.clear();
+    }
+    response.reset();
+    return this;
+  }
+
+  @Override
+  public FakeHttpServerResponse response() {
+    return response;
+  }
+
+  @Override
+  public Future<Buffer> body() {
+    return Future.succeededFuture(Buffer.buffer());
+  }
+
+  @Override
+  public long bytesRead() {
+    return 0;
+  }
+
+  @Override
+  public HttpServerRequest exceptionHandler(Handler<Throwable> handler) {
+    return this;
+  }
+
+  @Override
+  public HttpServerRequest handler(Handler<Buffer> handler) {
+    return this;
+  }
+
+  @Override
+  public HttpServerRequest pause() {
+    return this;
+  }
+
+  @Override
+  public HttpServerRequest resume() {
+    return this;
+  }
+
+  @Override
+  public HttpServerRequest fetch(long amount) {
+    return this;
+  }
+
+  @Override
+  public HttpServerRequest endHandler(Handler<Void> handler) {
+    return this;
+  }
+
+  @Override
+  public HttpVersion version() {
+    return HttpVersion.HTTP_1_1;
+  }
+
+  @Override
+  public HttpMethod method() {
+    return method;
+  }
+
+  @Override
+  public String uri() {
+    return uri;
+  }
+
+  @Override
+  public String path() {
+    return path;
+  }
+
+  @Override
+  public String query() {
+    return query;
+  }
+
+  @Override
+  public MultiMap headers() {
+    return headers;
+  }
+
+  @Override
+  public String getHeader(String headerName) {
+    return headers.get(headerName);
+  }
+
+  @Override
+  public String getHeader(CharSequence headerName) {
+    return headers.get(headerName);
+  }
+
+  @Override
+  public MultiMap params() {
+    if (params == null) {
+      params = MultiMap.caseInsensitiveMultiMap();
+    }
+    return params;
+  }
+
+  @Override
+  public String getParam(String paramName) {
+    return params().get(paramName);
+  }
+
+  @Override
+  public SocketAddress remoteAddress() {
+    return null;
+  }
+
+  @Override
+  public SocketAddress localAddress() {
+    return null;
+  }
+
+  @Override
+  public X509Certificate[] peerCertificateChain() {
+    return null;
+  }
+
+  @Override
+  public SSLSession sslSession() {
+    return null;
+  }
+
+  @Override
+  public String absoluteURI() {
+    return "http://localhost" + uri;
+  }
+
+  @Override
+  public String scheme() {
+    return "http";
+  }
+
+  @Override
+  public String host() {
+    return "localhost";
+  }
+
+  @Override
+  public HttpServerRequest customFrameHandler(Handler<HttpFrame> handler) {
+    return this;
+  }
+
+  @Override
+  public HttpConnection connection() {
+    return null;
+  }
+
+  @Override
+  public HttpServerRequest bodyHandler(Handler<Buffer> handler) {
+    return this;
+  }
+
+  @Override
+  public NetSocket netSocket() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public HttpServerRequest setExpectMultipart(boolean expect) {
+    return this;
+  }
+
+  @Override
+  public boolean isExpectMultipart() {
+    return false;
+  }
+
+  @Override
+  public HttpServerRequest uploadHandler(Handler<HttpServerFileUpload> uploadHandler) {
+    return this;
+  }
+
+  @Override
+  public MultiMap formAttributes() {
+    return MultiMap.caseInsensitiveMultiMap();
+  }
+
+  @Override
+  public String getFormAttribute(String attributeName) {
+    return null;
+  }
+
+  @Override
+  public ServerWebSocket upgrade() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean isEnded() {
+    return true;
+  }
+
+  @Override
+  public boolean isSSL() {
+    return false;
+  }
+
+  @Override
+  public HttpServerRequest streamPriorityHandler(Handler<StreamPriority> handler) {
+    return this;
+  }
+
+  @Override
+  public StreamPriority streamPriority() {
+    return null;
+  }
+
+  @Override
+  public @Nullable Cookie getCookie(String name) {
+    return null;
+  }
+
+  @Override
+  public int cookieCount() {
+    return 0;
+  }
+
+  @Override
+  public Map<String, Cookie> cookieMap() {
+    return Collections.emptyMap();
+  }
+}
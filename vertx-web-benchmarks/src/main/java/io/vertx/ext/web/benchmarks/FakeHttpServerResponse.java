@@ -0,0 +1,382 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.codegen.annotations.Nullable;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.Cookie;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+
+/**
+ * A response that discards what is written to it and only records the status code, so benchmarks can check the
+ * outcome of the routing.
+ */
+public class FakeHttpServerResponse implements HttpServerResponse {
+
+  private final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+  private MultiMap trailers;
+  private int statusCode;
+  private String statusMessage;
+  private boolean chunked;
+  private boolean ended;
+  private long bytesWritten;
+  private Handler<Void> headersEndHandler;
+  private Handler<Void> bodyEndHandler;
+
+  void reset() {
+    headers.clear();
+    if (trailers != null) {
+      trailers.clear();
+    }
+    statusCode = 200;
+    statusMessage = null;
+    chunked = false;
+    ended = false;
+    bytesWritten = 0;
+    headersEndHandler = null;
+    bodyEndHandler = null;
+  }
+
+  private Future<Void> write(int length, boolean end) {
+    if (ended) {
+      return Future.failedFuture(new IllegalStateException("Response has already been written"));
+    }
+    if (end) {
+      if (headersEndHandler != null) {
+        headersEndHandler.handle(null);
+      }
+      ended = true;
+    }
+    bytesWritten += length;
+    if (end && bodyEndHandler != null) {
+      bodyEndHandler.handle(null);
+    }
+    return Future.succeededFuture();
+  }
+
+  @Override
+  public HttpServerResponse exceptionHandler(Handler<Throwable> handler) {
+    return this;
+  }
+
+  @Override
+  public Future<Void> write(Buffer data) {
+    return write(data.length(), false);
+  }
+
+  @Override
+  public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+    Future<Void> fut = write(data);
+    if (handler != null) {
+      handler.handle(fut);
+    }
+  }
+
+  @Override
+  public HttpServerResponse setWriteQueueMaxSize(int maxSize) {
+    return this;
+  }
+
+  @Override
+  public boolean writeQueueFull() {
+    return false;
+  }
+
+  @Override
+  public HttpServerResponse drainHandler(Handler<Void> handler) {
+    return this;
+  }
+
+  @Override
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  @Override
+  public HttpServerResponse setStatusCode(int statusCode) {
+    this.statusCode = statusCode;
+    return this;
+  }
+
+  @Override
+  public String getStatusMessage() {
+    return statusMessage;
+  }
+
+  @Override
+  public HttpServerResponse setStatusMessage(String statusMessage) {
+    this.statusMessage = statusMessage;
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse setChunked(boolean chunked) {
+    this.chunked = chunked;
+    return this;
+  }
+
+  @Override
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  @Override
+  public MultiMap headers() {
+    return headers;
+  }
+
+  @Override
+  public HttpServerResponse putHeader(String name, String value) {
+    headers.set(name, value);
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse putHeader(CharSequence name, CharSequence value) {
+    headers.set(name, value);
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse putHeader(String name, Iterable<String> values) {
+    headers.set(name, values);
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse putHeader(CharSequence name, Iterable<CharSequence> values) {
+    headers.set(name, values);
+    return this;
+  }
+
+  @Override
+  public MultiMap trailers() {
+    if (trailers == null) {
+      trailers = MultiMap.caseInsensitiveMultiMap();
+    }
+    return trailers;
+  }
+
+  @Override
+  public HttpServerResponse putTrailer(String name, String value) {
+    trailers().set(name, value);
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse putTrailer(CharSequence name, CharSequence value) {
+    trailers().set(name, value);
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse putTrailer(String name, Iterable<String> values) {
+    trailers().set(name, values);
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse putTrailer(CharSequence name, Iterable<CharSequence> value) {
+    trailers().set(name, value);
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse closeHandler(@Nullable Handler<Void> handler) {
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse endHandler(@Nullable Handler<Void> handler) {
+    return this;
+  }
+
+  @Override
+  public Future<Void> write(String chunk, String enc) {
+    return write(chunk.length(), false);
+  }
+
+  @Override
+  public void write(String chunk, String enc, Handler<AsyncResult<Void>> handler) {
+    Future<Void> fut = write(chunk, enc);
+    if (handler != null) {
+      handler.handle(fut);
+    }
+  }
+
+  @Override
+  public Future<Void> write(String chunk) {
+    return write(chunk.length(), false);
+  }
+
+  @Override
+  public void write(String chunk, Handler<AsyncResult<Void>> handler) {
+    Future<Void> fut = write(chunk);
+    if (handler != null) {
+      handler.handle(fut);
+    }
+  }
+
+  @Override
+  public HttpServerResponse writeContinue() {
+    return this;
+  }
+
+  @Override
+  public Future<Void> end(String chunk) {
+    return write(chunk.length(), true);
+  }
+
+  @Override
+  public void end(String chunk, Handler<AsyncResult<Void>> handler) {
+    Future<Void> fut = end(chunk);
+    if (handler != null) {
+      handler.handle(fut);
+    }
+  }
+
+  @Override
+  public Future<Void> end(String chunk, String enc) {
+    return write(chunk.length(), true);
+  }
+
+  @Override
+  public void end(String chunk, String enc, Handler<AsyncResult<Void>> handler) {
+    Future<Void> fut = end(chunk, enc);
+    if (handler != null) {
+      handler.handle(fut);
+    }
+  }
+
+  @Override
+  public Future<Void> end(Buffer chunk) {
+    return write(chunk.length(), true);
+  }
+
+  @Override
+  public void end(Buffer chunk, Handler<AsyncResult<Void>> handler) {
+    Future<Void> fut = end(chunk);
+    if (handler != null) {
+      handler.handle(fut);
+    }
+  }
+
+  @Override
+  public Future<Void> end() {
+    return write(0, true);
+  }
+
+  @Override
+  public void end(Handler<AsyncResult<Void>> handler) {
+    Future<Void> fut = end();
+    if (handler != null) {
+      handler.handle(fut);
+    }
+  }
+
+  @Override
+  public Future<Void> sendFile(String filename, long offset, long length) {
+    return Future.failedFuture(new UnsupportedOperationException());
+  }
+
+  @Override
+  public HttpServerResponse sendFile(String filename, long offset, long length, Handler<AsyncResult<Void>> resultHandler) {
+    if (resultHandler != null) {
+      resultHandler.handle(sendFile(filename, offset, length));
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    ended = true;
+  }
+
+  @Override
+  public boolean ended() {
+    return ended;
+  }
+
+  @Override
+  public boolean closed() {
+    return false;
+  }
+
+  @Override
+  public boolean headWritten() {
+    return ended;
+  }
+
+  @Override
+  public HttpServerResponse headersEndHandler(@Nullable Handler<Void> handler) {
+    this.headersEndHandler = handler;
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse bodyEndHandler(@Nullable Handler<Void> handler) {
+    this.bodyEndHandler = handler;
+    return this;
+  }
+
+  @Override
+  public long bytesWritten() {
+    return bytesWritten;
+  }
+
+  @Override
+  public int streamId() {
+    return -1;
+  }
+
+  @Override
+  public HttpServerResponse push(HttpMethod method, String host, String path, MultiMap headers, Handler<AsyncResult<HttpServerResponse>> handler) {
+    if (handler != null) {
+      handler.handle(push(method, host, path, headers));
+    }
+    return this;
+  }
+
+  @Override
+  public Future<HttpServerResponse> push(HttpMethod method, String host, String path, MultiMap headers) {
+    return Future.failedFuture(new UnsupportedOperationException());
+  }
+
+  @Override
+  public boolean reset(long code) {
+    return false;
+  }
+
+  @Override
+  public HttpServerResponse writeCustomFrame(int type, int flags, Buffer payload) {
+    return this;
+  }
+
+  @Override
+  public HttpServerResponse addCookie(Cookie cookie) {
+    return this;
+  }
+
+  @Override
+  public @Nullable Cookie removeCookie(String name, boolean invalidate) {
+    return null;
+  }
+}
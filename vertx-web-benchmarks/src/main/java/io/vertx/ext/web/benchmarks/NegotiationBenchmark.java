@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the {@code Content-Type} and {@code Accept} negotiation of routes declaring {@code consumes} and
+ * {@code produces}.
+ */
+public class NegotiationBenchmark extends BenchmarkBase {
+
+  @Param({"10", "100"})
+  public int routes;
+
+  private Router router;
+  private FakeHttpServerRequest exact;
+  private FakeHttpServerRequest weighted;
+  private FakeHttpServerRequest unsupportedMediaType;
+  private FakeHttpServerRequest notAcceptable;
+
+  @Setup
+  public void setup() {
+    router = Router.router(vertx);
+    // routes on the same path that don't match the request content type
+    for (int i = 0; i < routes - 1; i++) {
+      router.post("/items")
+        .consumes("application/vnd.items" + i + "+json")
+        .produces("application/vnd.items" + i + "+json")
+        .handler(OK);
+    }
+    router.post("/items")
+      .consumes("application/json")
+      .produces("application/json")
+      .produces("text/html")
+      .handler(OK);
+
+    exact = request(HttpMethod.POST, "/items")
+      .header(HttpHeaders.CONTENT_TYPE, "application/json")
+      .header(HttpHeaders.ACCEPT, "application/json");
+    weighted = request(HttpMethod.POST, "/items")
+      .header(HttpHeaders.CONTENT_TYPE, "application/json; charset=utf-8")
+      .header(HttpHeaders.ACCEPT, "text/html;q=0.9, application/xhtml+xml, application/xml;q=0.8, */*;q=0.5");
+    unsupportedMediaType = request(HttpMethod.POST, "/items")
+      .header(HttpHeaders.CONTENT_TYPE, "text/plain")
+      .header(HttpHeaders.ACCEPT, "application/json");
+    notAcceptable = request(HttpMethod.POST, "/items")
+      .header(HttpHeaders.CONTENT_TYPE, "application/json")
+      .header(HttpHeaders.ACCEPT, "image/png");
+
+    check(router, exact, 200);
+    check(router, weighted, 200);
+    check(router, unsupportedMediaType, 415);
+    check(router, notAcceptable, 406);
+  }
+
+  @Benchmark
+  public int exact() {
+    return route(router, exact);
+  }
+
+  @Benchmark
+  public int weighted() {
+    return route(router, weighted);
+  }
+
+  @Benchmark
+  public int unsupportedMediaType() {
+    return route(router, unsupportedMediaType);
+  }
+
+  @Benchmark
+  public int notAcceptable() {
+    return route(router, notAcceptable);
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the cost of finding the route of a request depending on the number of routes and on how their path is
+ * declared.
+ */
+public class RoutingBenchmark extends BenchmarkBase {
+
+  @Param({"10", "100", "1000"})
+  public int routes;
+
+  @Param({"literal", "param", "regex"})
+  public String kind;
+
+  private Router router;
+  private FakeHttpServerRequest first;
+  private FakeHttpServerRequest middle;
+  private FakeHttpServerRequest last;
+
+  @Setup
+  public void setup() {
+    router = Router.router(vertx);
+    for (int i = 0; i < routes; i++) {
+      switch (kind) {
+        case "literal":
+          router.get("/resource" + i + "/items").handler(OK);
+          break;
+        case "param":
+          router.get("/resource" + i + "/:id").handler(OK);
+          break;
+        case "regex":
+          router.getWithRegex("/resource" + i + "/[0-9]+").handler(OK);
+          break;
+        default:
+          throw new IllegalArgumentException(kind);
+      }
+    }
+
+    first = request(HttpMethod.GET, uri(0));
+    middle = request(HttpMethod.GET, uri(routes / 2));
+    last = request(HttpMethod.GET, uri(routes - 1));
+
+    check(router, first, 200);
+    check(router, middle, 200);
+    check(router, last, 200);
+  }
+
+  private String uri(int i) {
+    return "literal".equals(kind) ? "/resource" + i + "/items" : "/resource" + i + "/42";
+  }
+
+  @Benchmark
+  public int firstRoute() {
+    return route(router, first);
+  }
+
+  @Benchmark
+  public int middleRoute() {
+    return route(router, middle);
+  }
+
+  @Benchmark
+  public int lastRoute() {
+    return route(router, last);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.benchmarks;
+
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the routing of requests through mounted sub routers, either nested or flattened.
+ */
+public class SubRouterBenchmark extends BenchmarkBase {
+
+  @Param({"10", "100", "1000"})
+  public int routes;
+
+  @Param({"1", "3"})
+  public int depth;
+
+  @Param({"false", "true"})
+  public boolean flatten;
+
+  private Router router;
+  private FakeHttpServerRequest request;
+
+  @Setup
+  public void setup() {
+    Router leaf = Router.router(vertx);
+    for (int i = 0; i < routes; i++) {
+      leaf.get("/resource" + i + "/:id").handler(OK);
+    }
+
+    StringBuilder uri = new StringBuilder();
+    Router current = leaf;
+    for (int level = depth; level > 0; level--) {
+      Router parent = Router.router(vertx);
+      // some routes before the mount point, as an application would have
+      for (int i = 0; i < 5; i++) {
+        parent.get("/other" + i).handler(OK);
+      }
+      parent.mountSubRouter("/api" + level, current, flatten);
+      current = parent;
+      uri.append("/api").append(depth - level + 1);
+    }
+    router = current;
+
+    request = request(HttpMethod.GET, uri.append("/resource").append(routes - 1).append("/42").toString());
+    check(router, request, 200);
+  }
+
+  @Benchmark
+  public int mounted() {
+    return route(router, request);
+  }
+}
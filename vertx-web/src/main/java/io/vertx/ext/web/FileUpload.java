@@ -16,7 +16,9 @@
 
 package io.vertx.ext.web;
 
+import io.vertx.codegen.annotations.Nullable;
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.buffer.Buffer;
 
 /**
  * Represents a file-upload from an HTTP multipart form submission.
@@ -33,9 +35,20 @@ public interface FileUpload {
   String name();
 
   /**
-   * @return the actual temporary file name on the server where the file was uploaded to.
+   * @return the actual temporary file name on the server where the file was uploaded to. This is never {@code null}
+   * unless in memory uploads are enabled with
+   * {@link io.vertx.ext.web.handler.BodyHandler#setMaxInMemoryUploadSize(long)}, an upload kept in memory has no file
+   * name, see {@link #content()}.
    */
-  String uploadedFileName();
+  @Nullable String uploadedFileName();
+
+  /**
+   * @return the content of the upload when it was kept in memory, see
+   * {@link io.vertx.ext.web.handler.BodyHandler#setMaxInMemoryUploadSize(long)}, otherwise {@code null}.
+   */
+  default @Nullable Buffer content() {
+    return null;
+  }
 
   /**
    * @return the file name of the upload as provided in the form submission
@@ -340,6 +340,22 @@ public interface Router extends Handler<HttpServerRequest> {
    */
   Route mountSubRouter(String mountPoint, Router subRouter);
 
+  /**
+   * Mount a sub router on this router. When {@code flatten} is {@code true} the routes of the sub router are merged
+   * in the routes of this router, prefixed by the mount point, so routing a request to them does not go through a
+   * nested routing context. The matching order and semantics are the same as {@link #mountSubRouter(String, Router)}
+   * and changes to the sub router are still visible.
+   * <p>
+   * Only sub routers mounted on a constant path (without parameters) are flattened, on other paths this is the same
+   * as {@link #mountSubRouter(String, Router)}.
+   *
+   * @param mountPoint  the mount point (path prefix) to mount it on
+   * @param subRouter  the router to mount as a sub router
+   * @param flatten  whether the routes of the sub router are merged in the routes of this router
+   * @return a reference to the route mounting the sub router
+   */
+  Route mountSubRouter(String mountPoint, Router subRouter, boolean flatten);
+
   /**
    * Specify an handler to handle an error for a particular status code. You can use to manage general errors too using status code 500.
    * The handler will be called when the context fails and other failure handlers didn't write the reply or when an exception is thrown inside an handler.
@@ -386,4 +402,21 @@ public interface Router extends Handler<HttpServerRequest> {
    */
   @Fluent
   Router allowForward(AllowForwardHeaders allowForwardHeaders);
+
+  /**
+   * Enable or disable the route matching metrics of this router. Metrics are disabled by default, when disabled the
+   * routing doesn't measure anything. Enabling metrics again starts from zero.
+   * <p>
+   * The routes of flattened sub routers are measured by this router, the other sub routers have their own metrics.
+   *
+   * @param enable whether to record metrics
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  Router enableMetrics(boolean enable);
+
+  /**
+   * @return the route matching metrics of this router or {@code null} when they are disabled
+   */
+  @Nullable RouterMetrics metrics();
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+
+package io.vertx.ext.web;
+
+import io.vertx.codegen.annotations.VertxGen;
+
+import java.util.List;
+
+/**
+ * The route matching metrics of a {@link Router}, recorded when enabled with {@link Router#enableMetrics(boolean)}.
+ * <p>
+ * Times are measured in nanoseconds. The time spent in a handler is measured while the handler runs on the calling
+ * thread, so it includes the routing of {@link RoutingContext#next()} when it is called synchronously.
+ */
+@VertxGen
+public interface RouterMetrics {
+
+  /**
+   * @param route the route
+   * @return the number of times the route matched a request
+   */
+  long hits(Route route);
+
+  /**
+   * @param route the route
+   * @return the number of times the route was evaluated without matching
+   */
+  long failedMatches(Route route);
+
+  /**
+   * @param route the route
+   * @return the time spent matching the route against requests
+   */
+  long matchTime(Route route);
+
+  /**
+   * @param route the route
+   * @return the time spent in the handlers of the route
+   */
+  long handlerTime(Route route);
+
+  /**
+   * The number of routes evaluated per request, as a histogram holding one sample per request. The bucket {@code 0}
+   * counts the requests that evaluated no route, the bucket {@code i} counts the requests that evaluated between
+   * {@code 2^(i-1)} and {@code 2^i - 1} routes, the last bucket also counts all the larger requests.
+   *
+   * @return the histogram buckets
+   */
+  List<Long> routesEvaluated();
+
+  /**
+   * Reset the router wide metrics and the metrics of the routes of the router.
+   */
+  void reset();
+}
@@ -25,6 +25,7 @@ import io.vertx.core.json.EncodeException;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.auth.User;
 import io.vertx.ext.web.impl.ParsableMIMEValue;
 import io.vertx.ext.web.impl.Utils;
@@ -271,6 +272,18 @@ public interface RoutingContext {
    */
   @Nullable JsonArray getBodyAsJsonArray();
 
+  /**
+   * @return Get the HTTP request body as a stream of {@link JsonObject}, the elements of a JSON array body parsed as they
+   * are received. The context must have first been routed to a {@link io.vertx.ext.web.handler.BodyHandler} with
+   * {@link io.vertx.ext.web.handler.BodyHandler#setJsonStreaming(boolean)} enabled for this to be populated, in which
+   * case {@link #getBody()} is {@code null}.
+   * <br/>
+   * The request is not read until a handler is set on the stream.
+   */
+  default @Nullable ReadStream<JsonObject> getBodyAsJsonStream() {
+    return null;
+  }
+
   /**
    * @return Get the entire HTTP request body as a {@link Buffer}. The context must have first been routed to a
    * {@link io.vertx.ext.web.handler.BodyHandler} for this to be populated.
@@ -22,6 +22,8 @@ import io.vertx.core.Handler;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.impl.BodyHandlerImpl;
 
+import java.util.function.Function;
+
 /**
  * A handler which gathers the entire request body and sets it on the {@link RoutingContext}.
  * <p>
@@ -57,6 +59,31 @@ public interface BodyHandler extends Handler<RoutingContext> {
    */
   boolean DEFAULT_PREALLOCATE_BODY_BUFFER = false;
 
+  /**
+   * Default value of whether the body chunks are aggregated in a composite buffer instead of being copied
+   */
+  boolean DEFAULT_COMPOSITE_BODY_BUFFER = false;
+
+  /**
+   * Default value of whether JSON bodies are parsed as a stream
+   */
+  boolean DEFAULT_JSON_STREAMING = false;
+
+  /**
+   * Default max bytes of file uploads held in memory by the handler. -1 means unlimited
+   */
+  long DEFAULT_UPLOAD_BUDGET = -1;
+
+  /**
+   * Default max size of a file upload kept in memory. 0 means that all the uploads are written to files
+   */
+  long DEFAULT_MAX_IN_MEMORY_UPLOAD_SIZE = 0;
+
+  /**
+   * Default value of whether the handler answers the requests expecting a {@code 100 Continue}
+   */
+  boolean DEFAULT_HANDLE_100_CONTINUE = false;
+
   /**
    * Create a body handler with defaults
    *
@@ -104,6 +131,20 @@ public interface BodyHandler extends Handler<RoutingContext> {
   @Fluent
   BodyHandler setBodyLimit(long bodyLimit);
 
+  /**
+   * Set a function resolving the maximum body size of a request, e.g. from its route or content type. The function is
+   * called once per request, before the body is read, and returns -1 for unlimited or {@code null} to use
+   * {@link #setBodyLimit(long) the body limit} of the handler.
+   * <p>
+   * A request declaring a larger {@code Content-Length} is rejected with {@code 413} before any of its body is read,
+   * as is a request expecting {@code 100-continue}, which is otherwise sent the {@code 100 Continue} response.
+   *
+   * @param bodyLimitResolver  the function resolving the max size of the body of a request
+   * @return reference to this for fluency
+   */
+  @Fluent
+  BodyHandler setBodyLimitResolver(Function<RoutingContext, Long> bodyLimitResolver);
+
   /**
    * Set the uploads directory to use
    *
@@ -142,4 +183,75 @@ public interface BodyHandler extends Handler<RoutingContext> {
   @Fluent
   BodyHandler setPreallocateBodyBuffer(boolean isPreallocateBodyBuffer);
 
+  /**
+   * Aggregate the body in a composite buffer that keeps the received chunks as they are, instead of copying each chunk
+   * in a single buffer growing with the body. The chunks are only copied when a consumer needs contiguous bytes,
+   * {@link io.vertx.ext.web.RoutingContext#getBodyAsJson()} and {@link io.vertx.ext.web.RoutingContext#getBodyAsJsonArray()}
+   * parse the chunks directly.
+   * <p>
+   * When enabled, {@link #setPreallocateBodyBuffer(boolean)} has no effect.
+   *
+   * @param compositeBodyBuffer {@code true} if the body chunks should be aggregated without copying
+   * @return reference to this for fluency
+   */
+  @Fluent
+  BodyHandler setCompositeBodyBuffer(boolean compositeBodyBuffer);
+
+  /**
+   * Parse JSON bodies as they are received instead of buffering them. The elements of a JSON array body are delivered
+   * as a back pressured stream by {@link io.vertx.ext.web.RoutingContext#getBodyAsJsonStream()}, so a large array is
+   * processed element by element with bounded memory. The next handler is called before the body is read.
+   * <p>
+   * Only requests with a JSON content type are streamed, the other requests are buffered as usual.
+   *
+   * @param jsonStreaming {@code true} if JSON bodies should be parsed as a stream
+   * @return reference to this for fluency
+   */
+  @Fluent
+  BodyHandler setJsonStreaming(boolean jsonStreaming);
+
+  /**
+   * Set the max bytes of file uploads held in memory, across all the requests handled by this handler: the chunks
+   * received and not yet written to disk plus the uploads kept in memory. A request is paused while the budget is
+   * exhausted and resumed once other uploads are written or released, or once its own chunks are written so that it
+   * always makes progress. The budget is therefore soft: each concurrent request can go over it by the chunks it
+   * received before being paused. -1 means unlimited
+   *
+   * @param uploadBudget  the max bytes held in memory
+   * @return reference to this for fluency
+   */
+  @Fluent
+  BodyHandler setUploadBudget(long uploadBudget);
+
+  /**
+   * Set the max size of a file upload kept in memory instead of being written to a file in the uploads directory.
+   * The content of such an upload is available from {@link io.vertx.ext.web.FileUpload#content()} until the response
+   * is ended, a larger upload, or one that does not fit in the {@link #setUploadBudget(long) budget}, is written to a
+   * file. 0 means that all the uploads are written to files.
+   * <p>
+   * In memory uploads are opt-in: {@link io.vertx.ext.web.FileUpload#uploadedFileName()} is {@code null} for an upload
+   * kept in memory, the handlers reading the uploads from a file must not be used together with this option
+   *
+   * @param maxInMemoryUploadSize  the max size of an upload kept in memory, in bytes
+   * @return reference to this for fluency
+   */
+  @Fluent
+  BodyHandler setMaxInMemoryUploadSize(long maxInMemoryUploadSize);
+
+  /**
+   * Set whether the handler answers the requests sent with an {@code Expect: 100-continue} header: such a request is
+   * rejected with a {@code 413} when its {@code Content-Length} is over the body limit, otherwise a
+   * {@code 100 Continue} is sent before the body is read.
+   * <p>
+   * This is disabled by default: the server then sends the {@code 100 Continue} itself when it is created with
+   * {@link io.vertx.core.http.HttpServerOptions#setHandle100ContinueAutomatically(boolean)}, before the request is
+   * routed. Enable it on a server that doesn't, so that the client sends the body only once the body limit has been
+   * checked.
+   *
+   * @param handle100Continue {@code true} if the handler should send the {@code 100 Continue}
+   * @return reference to this for fluency
+   */
+  @Fluent
+  BodyHandler setHandle100Continue(boolean handle100Continue);
+
 }
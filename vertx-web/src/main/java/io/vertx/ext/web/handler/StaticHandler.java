@@ -18,7 +18,11 @@ package io.vertx.ext.web.handler;
 
 import io.vertx.codegen.annotations.Fluent;
 import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
 import io.vertx.ext.web.Http2PushMapping;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.common.WebEnvironment;
@@ -85,6 +89,16 @@ public interface StaticHandler extends Handler<RoutingContext> {
    */
   int DEFAULT_MAX_CACHE_SIZE = 10000;
 
+  /**
+   * The default max size of the content cache, in bytes, the content cache is disabled by default
+   */
+  long DEFAULT_MAX_CONTENT_CACHE_SIZE = 0;
+
+  /**
+   * The default max size of a file in the content cache, in bytes
+   */
+  long DEFAULT_MAX_CONTENT_CACHE_FILE_SIZE = 65536; // 64KB
+
   /**
    * Default of whether async filesystem access should always be used
    */
@@ -116,6 +130,31 @@ public interface StaticHandler extends Handler<RoutingContext> {
    */
   boolean DEFAULT_SEND_VARY_HEADER = true;
 
+  /**
+   * Default of whether the web root should be watched for changes
+   */
+  boolean DEFAULT_WATCH_WEB_ROOT = false;
+
+  /**
+   * Default of whether precompressed files should be served
+   */
+  boolean DEFAULT_SERVE_PRECOMPRESSED = false;
+
+  /**
+   * Default of whether missing precompressed files should be created
+   */
+  boolean DEFAULT_CREATE_PRECOMPRESSED = false;
+
+  /**
+   * Default of whether an ETag header should be sent
+   */
+  boolean DEFAULT_ENABLE_ETAG = false;
+
+  /**
+   * Default of whether the ETag should be a hash of the file content
+   */
+  boolean DEFAULT_CONTENT_HASH_ETAG = false;
+
   /**
    * Create a handler using defaults
    *
@@ -162,6 +201,21 @@ public interface StaticHandler extends Handler<RoutingContext> {
   @Fluent
   StaticHandler setFilesReadOnly(boolean readOnly);
 
+  /**
+   * Set whether the web root should be watched for changes. The cached metadata of a file is invalidated as soon as
+   * the file changes, so when files are not read-only the cache entries don't need to time out (see
+   * {@link #setCacheEntryTimeout(long)}). The web root is watched by a dedicated thread, when it is not a directory
+   * of the file system (e.g.: classpath resources) or when changes may have been lost, the cache entries time out
+   * again. While the web root is watched, a cached file is served without checking it on the file system.
+   * <p>
+   * The watching starts with the next request and stops when it is disabled or when vertx is closed.
+   *
+   * @param watchWebRoot whether to watch the web root
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setWatchWebRoot(boolean watchWebRoot);
+
   /**
    * Set value for max age in caching headers
    *
@@ -226,7 +280,31 @@ public interface StaticHandler extends Handler<RoutingContext> {
   StaticHandler setMaxCacheSize(int maxCacheSize);
 
   /**
-   * Set the file mapping for http2push and link preload
+   * Set the max size of the in memory content cache, in bytes. Small files are kept in memory (off heap) so serving
+   * them doesn't access the file system, the least recently used files are evicted when the cache is full. The
+   * cached content is revalidated against the last modified time and size of the file. A size of {@code 0} disables
+   * the content cache.
+   *
+   * @param maxContentCacheSize the max size of the content cache, in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setMaxContentCacheSize(long maxContentCacheSize);
+
+  /**
+   * Set the max size of a file to be kept in the content cache, see {@link #setMaxContentCacheSize(long)}.
+   *
+   * @param maxContentCacheFileSize the max size of a cached file, in bytes
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setMaxContentCacheFileSize(long maxContentCacheFileSize);
+
+  /**
+   * Set the file mapping for http2push and link preload. The mapped files are resolved once, and again when the
+   * cached file properties would time out, so pushing doesn't access the file system. A cookie with a digest of the
+   * pushed files is set on the response, a client sending it back already has the files and they are not pushed again
+   * until one of them changes.
    *
    * @param http2PushMappings the mapping for http2 push
    * @return a reference to this, so the API can be used fluently
@@ -291,7 +369,8 @@ public interface StaticHandler extends Handler<RoutingContext> {
   StaticHandler setDirectoryTemplate(String directoryTemplate);
 
   /**
-   * Set whether range requests (resumable downloads; media streaming) should be enabled.
+   * Set whether range requests (resumable downloads; media streaming) should be enabled. Requests for several ranges
+   * get a {@code multipart/byteranges} response.
    *
    * @param enableRangeSupport true to enable range support
    * @return a reference to this, so the API can be used fluently
@@ -308,6 +387,74 @@ public interface StaticHandler extends Handler<RoutingContext> {
   @Fluent
   StaticHandler setSendVaryHeader(boolean varyHeader);
 
+  /**
+   * Set whether precompressed files should be served. When a client accepts the {@code br} or {@code gzip} encoding,
+   * the {@code .br} or {@code .gz} file next to the requested file is sent instead, with the matching
+   * {@code Content-Encoding} header, so it is not compressed for every response. Precompressed files older than the
+   * requested file are ignored.
+   *
+   * @param servePrecompressed true to serve precompressed files
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setServePrecompressed(boolean servePrecompressed);
+
+  /**
+   * Set whether the missing {@code .gz} precompressed files should be created, in the background, the first time a
+   * file is requested by a client accepting the {@code gzip} encoding. Only the files on the file system that are
+   * not already compressed (see {@link #skipCompressionForMediaTypes(Set)} and
+   * {@link #skipCompressionForSuffixes(Set)}) are precompressed. This requires
+   * {@link #setServePrecompressed(boolean)} and a writable web root.
+   *
+   * @param createPrecompressed true to create the missing precompressed files
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setCreatePrecompressed(boolean createPrecompressed);
+
+  /**
+   * Set whether a strong {@code ETag} header should be sent, derived from the size and the last modified time of the
+   * file. The validators are cached with the file properties, so a request with a matching {@code If-None-Match}
+   * header is answered with {@code 304} without accessing the file system. This requires caching to be enabled.
+   *
+   * @param enableETag true to send the ETag header
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setEnableETag(boolean enableETag);
+
+  /**
+   * Set whether the {@code ETag} should be a hash of the file content instead of its size and last modified time.
+   * The hash is computed once per file version, in the background, the size and last modified time are used until
+   * it is available. This is useful when the same files are served by several servers, where the last modified time
+   * may differ. This requires {@link #setEnableETag(boolean)}.
+   *
+   * @param contentHashETag true to hash the file content
+   * @return a reference to this, so the API can be used fluently
+   */
+  @Fluent
+  StaticHandler setContentHashETag(boolean contentHashETag);
+
+  /**
+   * Warm the handler up before serving requests, e.g.: at startup. All the files of the web root are listed, from the
+   * file system or from the jars of the classpath, and resolved in parallel on a worker pool: the classpath resources
+   * are extracted to the file cache and the properties of all the files are cached. This avoids the blocking
+   * extractions of the first requests after a deployment from a fat jar. The progress and the time taken are logged.
+   *
+   * @param vertx the vertx instance
+   * @param handler called once all the files are resolved
+   */
+  void warm(Vertx vertx, Handler<AsyncResult<Void>> handler);
+
+  /**
+   * Same as {@link #warm(Vertx, Handler)} but returns a {@code Future} of the asynchronous result
+   */
+  default Future<Void> warm(Vertx vertx) {
+    Promise<Void> promise = Promise.promise();
+    warm(vertx, promise);
+    return promise.future();
+  }
+
   /**
    * Set the default content encoding for text related files. This allows overriding the system settings default value.
    *
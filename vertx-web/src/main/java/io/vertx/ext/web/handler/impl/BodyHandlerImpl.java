@@ -21,14 +21,25 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
 import io.vertx.core.file.FileSystem;
+import io.vertx.core.file.OpenOptions;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerFileUpload;
 import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.ext.web.FileUpload;
@@ -45,11 +56,19 @@ public class BodyHandlerImpl implements BodyHandler {
   private static final Logger log = LoggerFactory.getLogger(BodyHandlerImpl.class);
 
   private long bodyLimit = DEFAULT_BODY_LIMIT;
+  private Function<RoutingContext, Long> bodyLimitResolver;
   private boolean handleFileUploads;
   private String uploadsDir;
   private boolean mergeFormAttributes = DEFAULT_MERGE_FORM_ATTRIBUTES;
   private boolean deleteUploadedFilesOnEnd = DEFAULT_DELETE_UPLOADED_FILES_ON_END;
   private boolean isPreallocateBodyBuffer = DEFAULT_PREALLOCATE_BODY_BUFFER;
+  private boolean compositeBodyBuffer = DEFAULT_COMPOSITE_BODY_BUFFER;
+  private boolean jsonStreaming = DEFAULT_JSON_STREAMING;
+  private UploadBudget uploadBudget = new UploadBudget(DEFAULT_UPLOAD_BUDGET);
+  private long maxInMemoryUploadSize = DEFAULT_MAX_IN_MEMORY_UPLOAD_SIZE;
+  private boolean handle100Continue = DEFAULT_HANDLE_100_CONTINUE;
+  // the uploads directory is created once, on a worker thread
+  private volatile Future<Void> uploadsDirCreated;
   private static final int DEFAULT_INITIAL_BODY_BUFFER_SIZE = 1024; //bytes
 
 
@@ -79,15 +98,32 @@ public class BodyHandlerImpl implements BodyHandler {
     }
     // we need to keep state since we can be called again on reroute
     if (!((RoutingContextInternal) context).seenHandler(RoutingContextInternal.BODY_HANDLER)) {
-      long contentLength = isPreallocateBodyBuffer ? parseContentLengthHeader(request) : -1;
-      BHandler handler = new BHandler(context, contentLength);
+      final long bodyLimit = resolveBodyLimit(context);
+      if (bodyLimit != -1 && parseContentLengthHeader(request) > bodyLimit) {
+        // rejected before reading any of the body
+        context.fail(413);
+        return;
+      }
+      if (handle100Continue && request.version() != HttpVersion.HTTP_1_0 && request.headers().contains(HttpHeaderNames.EXPECT, HttpHeaderValues.CONTINUE, true)) {
+        // the client waits for this decision before sending the body, unless the server already sent it
+        request.response().writeContinue();
+      }
+      if (jsonStreaming && isJson(request)) {
+        ((RoutingContextInternal) context)
+          .setBodyAsJsonStream(new JsonArrayStream(context, bodyLimit));
+        ((RoutingContextInternal) context).visitHandler(RoutingContextInternal.BODY_HANDLER);
+        context.next();
+        return;
+      }
+      long contentLength = isPreallocateBodyBuffer || compositeBodyBuffer ? parseContentLengthHeader(request) : -1;
+      BHandler handler = new BHandler(context, contentLength, bodyLimit);
       request.handler(handler);
       request.endHandler(v -> handler.end());
       ((RoutingContextInternal) context).visitHandler(RoutingContextInternal.BODY_HANDLER);
     } else {
       // on reroute we need to re-merge the form params if that was desired
       if (mergeFormAttributes && request.isExpectMultipart()) {
-        request.params().addAll(request.formAttributes());
+        ((RoutingContextInternal) context).mergeFormAttributes();
       }
 
       context.next();
@@ -106,9 +142,26 @@ public class BodyHandlerImpl implements BodyHandler {
     return this;
   }
 
+  @Override
+  public BodyHandler setBodyLimitResolver(Function<RoutingContext, Long> bodyLimitResolver) {
+    this.bodyLimitResolver = bodyLimitResolver;
+    return this;
+  }
+
+  private long resolveBodyLimit(RoutingContext context) {
+    if (bodyLimitResolver != null) {
+      Long limit = bodyLimitResolver.apply(context);
+      if (limit != null) {
+        return limit;
+      }
+    }
+    return bodyLimit;
+  }
+
   @Override
   public BodyHandler setUploadsDirectory(String uploadsDirectory) {
     this.uploadsDir = uploadsDirectory;
+    this.uploadsDirCreated = null;
     return this;
   }
 
@@ -130,6 +183,59 @@ public class BodyHandlerImpl implements BodyHandler {
     return this;
   }
 
+  @Override
+  public BodyHandler setCompositeBodyBuffer(boolean compositeBodyBuffer) {
+    this.compositeBodyBuffer = compositeBodyBuffer;
+    return this;
+  }
+
+  @Override
+  public BodyHandler setJsonStreaming(boolean jsonStreaming) {
+    this.jsonStreaming = jsonStreaming;
+    return this;
+  }
+
+  @Override
+  public BodyHandler setUploadBudget(long uploadBudget) {
+    this.uploadBudget = new UploadBudget(uploadBudget);
+    return this;
+  }
+
+  @Override
+  public BodyHandler setMaxInMemoryUploadSize(long maxInMemoryUploadSize) {
+    this.maxInMemoryUploadSize = maxInMemoryUploadSize;
+    return this;
+  }
+
+  @Override
+  public BodyHandler setHandle100Continue(boolean handle100Continue) {
+    this.handle100Continue = handle100Continue;
+    return this;
+  }
+
+  private Future<Void> createUploadsDir(Vertx vertx) {
+    Future<Void> created = uploadsDirCreated;
+    if (created == null || created.failed()) {
+      Promise<Void> promise = Promise.promise();
+      // an existing directory is not an error
+      vertx.fileSystem().mkdirs(uploadsDir, promise);
+      created = promise.future();
+      uploadsDirCreated = created;
+    }
+    return created;
+  }
+
+  private static boolean isJson(HttpServerRequest request) {
+    String contentType = request.getHeader(HttpHeaders.CONTENT_TYPE);
+    if (contentType == null) {
+      return false;
+    }
+    int semi = contentType.indexOf(';');
+    String mime = (semi == -1 ? contentType : contentType.substring(0, semi)).trim().toLowerCase();
+    // application/json and the structured syntax suffix, e.g. application/vnd.api+json
+    return mime.equals("application/json") || mime.endsWith("+json");
+  }
+
   private long parseContentLengthHeader(HttpServerRequest request) {
     String contentLength = request.getHeader(HttpHeaders.CONTENT_LENGTH);
     if (contentLength == null || contentLength.isEmpty()) {
@@ -148,18 +254,29 @@ public class BodyHandlerImpl implements BodyHandler {
 
     final RoutingContext context;
     final long contentLength;
+    // the body limit resolved for this request
+    final long bodyLimit;
     Buffer body;
+    CompositeByteBuf composite;
     boolean failed;
     AtomicInteger uploadCount = new AtomicInteger();
     AtomicBoolean cleanup = new AtomicBoolean(false);
     boolean ended;
     long uploadSize = 0L;
+    // the budget in use when the request was received
+    final UploadBudget budget = uploadBudget;
+    // the chunks of uploads of this request not yet written to disk
+    long pendingWrites;
+    // the waiter of the request in the budget while it is paused, and the count of pauses to ignore a stale waiter
+    Runnable budgetWaiter;
+    int budgetPauses;
     final boolean isMultipart;
     final boolean isUrlEncoded;
 
-    public BHandler(RoutingContext context, long contentLength) {
+    public BHandler(RoutingContext context, long contentLength, long bodyLimit) {
       this.context = context;
       this.contentLength = contentLength;
+      this.bodyLimit = bodyLimit;
       // the request clearly states that there should
       // be a body, so we respect the client and ensure
       // that the body will not be null
@@ -181,9 +298,6 @@ public class BodyHandlerImpl implements BodyHandler {
 
       if (isMultipart || isUrlEncoded) {
         context.request().setExpectMultipart(true);
-        if (handleFileUploads) {
-          makeUploadDir(context.vertx().fileSystem());
-        }
         context.request().uploadHandler(upload -> {
           if (bodyLimit != -1 && upload.isSizeAvailable()) {
             // we can try to abort even before the upload starts
@@ -198,14 +312,25 @@ public class BodyHandlerImpl implements BodyHandler {
             // we actually upload to a file with a generated filename
             uploadCount.incrementAndGet();
             String uploadedFileName = new File(uploadsDir, UUID.randomUUID().toString()).getPath();
-            upload.streamToFileSystem(uploadedFileName);
-            FileUploadImpl fileUpload = new FileUploadImpl(uploadedFileName, upload);
-            fileUploads.add(fileUpload);
-            upload.exceptionHandler(t -> {
-              deleteFileUploads();
-              context.fail(t);
-            });
-            upload.endHandler(v -> uploadEnded());
+            if (budget.limited() || maxInMemoryUploadSize > 0) {
+              new Upload(upload, uploadedFileName).start();
+            } else {
+              fileUploads.add(new FileUploadImpl(uploadedFileName, upload));
+              Future<Void> created = createUploadsDir(context.vertx());
+              if (created.succeeded()) {
+                streamToFileSystem(upload, uploadedFileName);
+              } else {
+                // nothing is received until the directory exists
+                upload.pause();
+                created.onComplete(ar -> {
+                  if (ar.failed()) {
+                    uploadFailed(upload, ar.cause());
+                  } else {
+                    streamToFileSystem(upload, uploadedFileName);
+                  }
+                });
+              }
+            }
           }
         });
       }
@@ -222,6 +347,13 @@ public class BodyHandlerImpl implements BodyHandler {
     }
 
     private void initBodyBuffer() {
+      if (compositeBodyBuffer) {
+        // no consolidation, the chunks are kept as received however many they are
+        composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        body = Buffer.buffer(composite);
+        return;
+      }
+
       int initialBodyBufferSize;
       if (contentLength < 0) {
         initialBodyBufferSize = DEFAULT_INITIAL_BODY_BUFFER_SIZE;
@@ -238,9 +370,46 @@ public class BodyHandlerImpl implements BodyHandler {
       this.body = Buffer.buffer(initialBodyBufferSize);
     }
 
-    private void makeUploadDir(FileSystem fileSystem) {
-      if (!fileSystem.existsBlocking(uploadsDir)) {
-        fileSystem.mkdirsBlocking(uploadsDir);
+    private void streamToFileSystem(HttpServerFileUpload upload, String uploadedFileName) {
+      upload.streamToFileSystem(uploadedFileName);
+      upload.exceptionHandler(t -> {
+        // the directory may have been removed, it is created again for the next uploads
+        uploadsDirCreated = null;
+        deleteFileUploads();
+        context.fail(t);
+      });
+      upload.endHandler(v -> uploadEnded());
+    }
+
+    private void uploadFailed(HttpServerFileUpload upload, Throwable t) {
+      if (!failed) {
+        failed = true;
+        deleteFileUploads();
+        context.fail(t);
+      }
+      // the rest of the upload is ignored
+      upload.handler(null);
+      upload.resume();
+    }
+
+    void pauseForBudget() {
+      if (budgetWaiter == null) {
+        context.request().pause();
+        final int pause = ++budgetPauses;
+        budgetWaiter = budget.await(context.vertx().getOrCreateContext(), v -> {
+          // the request may have resumed for its own writes and be paused again since
+          if (budgetPauses == pause) {
+            resumeForBudget();
+          }
+        });
+      }
+    }
+
+    void resumeForBudget() {
+      if (budgetWaiter != null) {
+        budget.cancel(budgetWaiter);
+        budgetWaiter = null;
+        context.request().resume();
       }
     }
 
@@ -263,7 +432,12 @@ public class BodyHandlerImpl implements BodyHandler {
           if (body == null) {
             initBodyBuffer();
           }
-          body.appendBuffer(buff);
+          if (composite != null) {
+            // the chunk is a copy owned by the request, its bytes are referenced, not copied
+            composite.addComponent(true, buff.getByteBuf());
+          } else {
+            body.appendBuffer(buff);
+          }
         }
       }
     }
@@ -298,13 +472,14 @@ public class BodyHandlerImpl implements BodyHandler {
         context.addBodyEndHandler(x -> deleteFileUploads());
       }
 
-      HttpServerRequest req = context.request();
-      if (mergeFormAttributes && req.isExpectMultipart()) {
-        req.params().addAll(req.formAttributes());
+      if (mergeFormAttributes && context.request().isExpectMultipart()) {
+        // a view, the attributes are only copied if the params are modified
+        ((RoutingContextInternal) context).mergeFormAttributes();
       }
       context.setBody(body);
 
       body = null;
+      composite = null;
 
       context.next();
     }
@@ -314,6 +489,10 @@ public class BodyHandlerImpl implements BodyHandler {
         for (FileUpload fileUpload : context.fileUploads()) {
           FileSystem fileSystem = context.vertx().fileSystem();
           String uploadedFileName = fileUpload.uploadedFileName();
+          if (uploadedFileName == null) {
+            // kept in memory
+            continue;
+          }
           fileSystem.exists(uploadedFileName, existResult -> {
             if (existResult.failed()) {
               log.warn("Could not detect if uploaded file exists, not deleting: " + uploadedFileName, existResult.cause());
@@ -328,6 +507,153 @@ public class BodyHandlerImpl implements BodyHandler {
         }
       }
     }
+
+    /**
+     * An upload kept in memory while it is small enough, otherwise written to a file. The chunks held in memory are
+     * accounted in the upload budget, the request is paused while the budget is exhausted.
+     */
+    private class Upload {
+      final HttpServerFileUpload upload;
+      final String uploadedFileName;
+      final FileUploadImpl fileUpload;
+      Buffer memory;
+      // the bytes of memory accounted in the budget
+      long inMemory;
+      AsyncFile file;
+      // the chunks of this upload not yet written to the file
+      long pending;
+      boolean ended;
+      boolean closed;
+
+      Upload(HttpServerFileUpload upload, String uploadedFileName) {
+        this.upload = upload;
+        this.uploadedFileName = uploadedFileName;
+        this.fileUpload = new FileUploadImpl(null, upload);
+      }
+
+      void start() {
+        context.fileUploads().add(fileUpload);
+        upload.exceptionHandler(this::fail);
+        upload.endHandler(v -> end());
+        if (maxInMemoryUploadSize > 0 && (!upload.isSizeAvailable() || upload.size() <= maxInMemoryUploadSize)) {
+          memory = Buffer.buffer();
+          upload.handler(this::handleInMemory);
+          // the content is referenced by the file upload until the response is ended
+          context.addEndHandler(v -> {
+            budget.release(inMemory);
+            inMemory = 0;
+          });
+        } else {
+          open(null);
+        }
+      }
+
+      private void handleInMemory(Buffer buff) {
+        if (memory.length() + buff.length() <= maxInMemoryUploadSize && budget.tryAcquire(buff.length())) {
+          inMemory += buff.length();
+          memory.appendBuffer(buff);
+        } else {
+          // too large or no room left in memory, the upload goes to a file starting with what was received so far
+          final Buffer received = memory.appendBuffer(buff);
+          memory = null;
+          budget.release(inMemory);
+          inMemory = 0;
+          open(received);
+        }
+      }
+
+      private void open(Buffer received) {
+        // nothing is received until the file is opened
+        upload.pause();
+        upload.handler(this::write);
+        fileUpload.setUploadedFileName(uploadedFileName);
+
+        final FileSystem fileSystem = context.vertx().fileSystem();
+        createUploadsDir(context.vertx()).onComplete(created -> {
+          if (created.failed()) {
+            fail(created.cause());
+            return;
+          }
+          fileSystem.open(uploadedFileName, new OpenOptions(), opened -> {
+            if (opened.failed()) {
+              // same as the uploads streamed to the file system
+              uploadsDirCreated = null;
+              fail(opened.cause());
+              return;
+            }
+            file = opened.result();
+            if (cleanup.get()) {
+              // the uploads were deleted while the file was being opened
+              file.close(closed -> fileSystem.delete(uploadedFileName, deleted -> {}));
+              return;
+            }
+            file.exceptionHandler(this::fail);
+            if (received != null) {
+              write(received);
+            }
+            upload.resume();
+          });
+        });
+      }
+
+      private void write(Buffer buff) {
+        final int length = buff.length();
+        pending += length;
+        pendingWrites += length;
+        if (!budget.acquire(length)) {
+          pauseForBudget();
+        }
+        file.write(buff, written -> {
+          pending -= length;
+          pendingWrites -= length;
+          budget.release(length);
+          if (written.failed()) {
+            fail(written.cause());
+            return;
+          }
+          if (pendingWrites == 0) {
+            // the request can always make progress, even when other requests hold the budget: the budget is soft
+            resumeForBudget();
+          }
+          if (ended && pending == 0) {
+            close();
+          }
+        });
+        if (file.writeQueueFull()) {
+          upload.pause();
+          file.drainHandler(v -> upload.resume());
+        }
+      }
+
+      private void end() {
+        ended = true;
+        if (memory != null) {
+          fileUpload.setContent(memory);
+          memory = null;
+          uploadEnded();
+        } else if (file != null && pending == 0) {
+          close();
+        }
+      }
+
+      private void close() {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        file.close(ar -> {
+          if (ar.failed()) {
+            fail(ar.cause());
+          } else {
+            uploadEnded();
+          }
+        });
+      }
+
+      private void fail(Throwable t) {
+        uploadFailed(upload, t);
+      }
+    }
   }
 
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.Json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rendered directory listing, kept as a list of pages so a large directory is neither rendered into nor written
+ * from a single huge buffer.
+ * <p>
+ * A listing is immutable once rendered and tied to the last modified time of the directory, so it can be cached and
+ * sent to several responses concurrently.
+ */
+final class DirectoryListing {
+
+  // the size of a rendered page, in chars
+  private static final int PAGE_SIZE = 32 * 1024;
+
+  final long lastModifiedTime;
+  private final String contentType;
+  private final List<Buffer> pages;
+  private final long length;
+
+  private DirectoryListing(long lastModifiedTime, String contentType, Pages pages) {
+    this.lastModifiedTime = lastModifiedTime;
+    this.contentType = contentType;
+    this.pages = pages.pages();
+    long length = 0;
+    for (Buffer page : this.pages) {
+      length += page.length();
+    }
+    this.length = length;
+  }
+
+  /**
+   * @return the size of the rendered listing in bytes
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Renders an html listing, each {@code {files}} is replaced by the list of links to the files.
+   *
+   * @param files the sorted file names
+   * @param template the html template
+   * @param directory the path of the directory as requested, ending with {@code /}
+   */
+  static DirectoryListing html(long lastModifiedTime, List<String> files, String template, String directory) {
+    // link to parent dir
+    int slashPos = 0;
+    for (int i = directory.length() - 2; i > 0; i--) {
+      if (directory.charAt(i) == '/') {
+        slashPos = i;
+        break;
+      }
+    }
+
+    final String parent = "<a href=\"" + directory.substring(0, slashPos + 1) + "\">..</a>";
+    final Pages pages = new Pages();
+
+    // every occurrence of the placeholder is replaced by the list
+    int start = 0;
+    int filesPos;
+    while ((filesPos = template.indexOf("{files}", start)) != -1) {
+      pages.append(template.substring(start, filesPos).replace("{directory}", directory).replace("{parent}", parent));
+      pages.append("<ul id=\"files\">");
+      for (String file : files) {
+        pages
+          .append("<li><a href=\"")
+          .append(directory)
+          .append(file)
+          .append("\" title=\"")
+          .append(file)
+          .append("\">")
+          .append(file)
+          .append("</a></li>");
+      }
+      pages.append("</ul>");
+      start = filesPos + 7;
+    }
+    pages.append(template.substring(start).replace("{directory}", directory).replace("{parent}", parent));
+
+    return new DirectoryListing(lastModifiedTime, "text/html", pages);
+  }
+
+  /**
+   * Renders a json array of the file names.
+   */
+  static DirectoryListing json(long lastModifiedTime, List<String> files) {
+    final Pages pages = new Pages();
+    pages.append("[");
+    for (int i = 0; i < files.size(); i++) {
+      if (i > 0) {
+        pages.append(",");
+      }
+      pages.append(Json.encode(files.get(i)));
+    }
+    pages.append("]");
+
+    return new DirectoryListing(lastModifiedTime, "application/json", pages);
+  }
+
+  /**
+   * Renders the file names, one per line.
+   */
+  static DirectoryListing text(long lastModifiedTime, List<String> files) {
+    final Pages pages = new Pages();
+    for (String file : files) {
+      pages.append(file).append("\n");
+    }
+
+    return new DirectoryListing(lastModifiedTime, "text/plain", pages);
+  }
+
+  /**
+   * Sends the listing page by page, following the back pressure of the response.
+   */
+  void send(HttpServerResponse response) {
+    response
+      .putHeader(HttpHeaders.CONTENT_TYPE, contentType)
+      .putHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(length));
+    write(response, 0);
+  }
+
+  private void write(HttpServerResponse response, int page) {
+    while (page < pages.size() - 1) {
+      if (response.closed()) {
+        return;
+      }
+      if (response.writeQueueFull()) {
+        final int next = page;
+        response.drainHandler(v -> write(response, next));
+        return;
+      }
+      response.write(pages.get(page++));
+    }
+    if (pages.isEmpty()) {
+      response.end();
+    } else {
+      response.end(pages.get(page));
+    }
+  }
+
+  private static final class Pages {
+    private final List<Buffer> pages = new ArrayList<>();
+    private final StringBuilder page = new StringBuilder(PAGE_SIZE + 256);
+
+    Pages append(String s) {
+      page.append(s);
+      if (page.length() >= PAGE_SIZE) {
+        pages.add(Buffer.buffer(page.toString()));
+        page.setLength(0);
+      }
+      return this;
+    }
+
+    List<Buffer> pages() {
+      if (page.length() > 0) {
+        pages.add(Buffer.buffer(page.toString()));
+        page.setLength(0);
+      }
+      return pages;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.handler.impl;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileProps;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.ext.web.impl.ConcurrentCache;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in memory cache of the content of small files, so serving them doesn't need to open, stat and close the file.
+ * <p>
+ * The content is kept off heap, in direct buffers that are released by the garbage collector: an entry can be
+ * evicted while a response is still writing it. Entries are weighted by their size and evicted by a
+ * {@link ConcurrentCache} once the total size of the cached files goes over the budget, and they are revalidated
+ * against the last modified time and size of the file being served.
+ * <p>
+ * This class is thread-safe
+ */
+final class FileContentCache {
+
+  private static final Logger log = LoggerFactory.getLogger(FileContentCache.class);
+
+  static final class Entry {
+    private final ByteBuffer content;
+    final long lastModifiedTime;
+    final long size;
+    // the headers describing the content, computed once
+    final MultiMap headers;
+
+    private Entry(ByteBuffer content, long lastModifiedTime, MultiMap headers) {
+      this.content = content;
+      this.lastModifiedTime = lastModifiedTime;
+      this.size = content.capacity();
+      this.headers = headers;
+    }
+
+    /**
+     * @return a buffer over the cached content, it doesn't copy the content.
+     */
+    Buffer content() {
+      // each response gets its own indexes over the shared memory
+      return Buffer.buffer(Unpooled.wrappedBuffer(content.duplicate()));
+    }
+  }
+
+  private final ConcurrentCache<String, Entry> entries;
+  // the files being read, so a file is only read once when requests race
+  private final Set<String> loading = ConcurrentHashMap.newKeySet();
+  private volatile long maxSize;
+  private volatile long maxFileSize;
+
+  FileContentCache(long maxSize, long maxFileSize) {
+    this.maxSize = maxSize;
+    this.maxFileSize = maxFileSize;
+    this.entries = new ConcurrentCache<>(Math.max(1, maxSize), 0);
+  }
+
+  boolean enabled() {
+    return maxSize > 0;
+  }
+
+  void setMaxSize(long maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maxContentCacheSize must be >= 0");
+    }
+    this.maxSize = maxSize;
+    if (maxSize == 0) {
+      entries.clear();
+    } else {
+      entries.setMaxWeight(maxSize);
+    }
+  }
+
+  void setMaxFileSize(long maxFileSize) {
+    if (maxFileSize < 1) {
+      throw new IllegalArgumentException("maxContentCacheFileSize must be >= 1");
+    }
+    this.maxFileSize = maxFileSize;
+  }
+
+  /**
+   * @return {@code true} when the file is small enough to be cached.
+   */
+  boolean accepts(FileProps props) {
+    return props.size() <= maxFileSize && props.size() <= maxSize;
+  }
+
+  /**
+   * Gets the cached content of a file.
+   *
+   * @param file the file
+   * @param props the current properties of the file
+   * @return the entry or {@code null} if the file isn't cached or it changed since it was cached
+   */
+  Entry get(String file, FileProps props) {
+    final Entry entry = entries.get(file);
+    if (entry != null) {
+      if (entry.lastModifiedTime == props.lastModifiedTime() && entry.size == props.size()) {
+        return entry;
+      }
+      // stale
+      entries.remove(file);
+    }
+    return null;
+  }
+
+  /**
+   * Reads a file in the background and caches its content, the current request is not delayed.
+   *
+   * @param vertx the vertx instance
+   * @param file the file
+   * @param props the properties of the file at the time of the request
+   * @param headers the content headers to send with the cached content
+   */
+  void load(Vertx vertx, String file, FileProps props, MultiMap headers) {
+    if (!loading.add(file)) {
+      return;
+    }
+    vertx.fileSystem().readFile(file, read -> {
+      try {
+        if (read.failed()) {
+          log.debug("Failed to cache the content of " + file, read.cause());
+          return;
+        }
+        final Buffer buffer = read.result();
+        if (buffer.length() != props.size()) {
+          // the file changed while being read
+          return;
+        }
+        final ByteBuffer content = ByteBuffer.allocateDirect(buffer.length());
+        content.put(buffer.getByteBuf().nioBuffer());
+        content.flip();
+        if (enabled()) {
+          entries.put(file, new Entry(content, props.lastModifiedTime(), headers), content.capacity());
+        }
+      } finally {
+        loading.remove(file);
+      }
+    });
+  }
+
+  void remove(String file) {
+    entries.remove(file);
+  }
+
+  void clear() {
+    entries.clear();
+  }
+}
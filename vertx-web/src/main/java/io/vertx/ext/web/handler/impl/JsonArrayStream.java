@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEvent;
+import io.vertx.core.parsetools.JsonParser;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * The elements of a JSON array request body, parsed as the body is received.
+ * <p>
+ * The request is piped through a {@link JsonParser} in object value mode, so only the element being parsed is held
+ * in memory. The stream follows the back pressure of its consumer: the request is paused when the consumer pauses
+ * the stream. A body made of a single JSON object is a stream of a single element.
+ * <p>
+ * The request is paused when the stream is created and only read once a handler is set, so the handler can be set
+ * asynchronously without losing any element. Errors are reported to the exception handler or, when there is none,
+ * fail the routing context.
+ */
+final class JsonArrayStream implements ReadStream<JsonObject> {
+
+  private final RoutingContext context;
+  private final JsonParser parser;
+
+  private Handler<JsonObject> handler;
+  private Handler<Void> endHandler;
+  private Handler<Throwable> exceptionHandler;
+  // the consumer paused the stream, possibly before setting a handler
+  private boolean paused;
+  // the demand of the consumer before setting a handler
+  private long pendingFetch;
+  // the elements the consumer can receive, the request is paused when there is none
+  private long demand;
+  private boolean failed;
+  private int depth;
+
+  /**
+   * @param bodyLimit the max size of the body or {@code -1} for unlimited
+   */
+  JsonArrayStream(RoutingContext context, long bodyLimit) {
+    this.context = context;
+    // nothing is read until there is someone to deliver to, the router doesn't pause the request
+    context.request().pause();
+    this.parser = JsonParser.newParser(new LimitedRequest(context.request(), bodyLimit)).objectValueMode();
+    parser.pause();
+    parser.exceptionHandler(this::fail);
+    parser.endHandler(v -> {
+      if (!failed && endHandler != null) {
+        endHandler.handle(null);
+      }
+    });
+  }
+
+  @Override
+  public ReadStream<JsonObject> handler(Handler<JsonObject> handler) {
+    this.handler = handler;
+    if (handler == null) {
+      parser.handler(null);
+    } else {
+      parser.handler(this::handleEvent);
+      if (!paused) {
+        resume();
+      } else if (pendingFetch > 0) {
+        final long amount = pendingFetch;
+        pendingFetch = 0;
+        fetch(amount);
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<JsonObject> pause() {
+    paused = true;
+    demand = 0;
+    parser.pause();
+    if (!failed) {
+      context.request().pause();
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<JsonObject> resume() {
+    paused = false;
+    if (handler != null) {
+      demand = Long.MAX_VALUE;
+      parser.resume();
+      context.request().resume();
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<JsonObject> fetch(long amount) {
+    if (handler == null) {
+      // the request is read as soon as there is demand, it waits for a handler
+      pendingFetch += amount;
+    } else if (amount > 0) {
+      demand += amount;
+      if (demand < 0) {
+        demand = Long.MAX_VALUE;
+      }
+      parser.fetch(amount);
+      context.request().resume();
+    }
+    return this;
+  }
+
+  @Override
+  public ReadStream<JsonObject> endHandler(Handler<Void> endHandler) {
+    this.endHandler = endHandler;
+    return this;
+  }
+
+  @Override
+  public ReadStream<JsonObject> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  private void handleEvent(JsonEvent event) {
+    if (failed) {
+      return;
+    }
+    switch (event.type()) {
+      case START_ARRAY:
+        if (++depth > 1) {
+          fail(new DecodeException("Expected a JSON object as array element, got an array"));
+        }
+        break;
+      case END_ARRAY:
+        depth--;
+        break;
+      case VALUE:
+        if (event.value() instanceof JsonObject) {
+          final Handler<JsonObject> handler = this.handler;
+          if (demand != Long.MAX_VALUE && --demand == 0) {
+            // the elements already parsed are kept by the parser until the next fetch
+            context.request().pause();
+          }
+          if (handler != null) {
+            handler.handle(event.objectValue());
+          }
+        } else {
+          fail(new DecodeException("Expected a JSON object or an array of JSON objects, got: " + event.value()));
+        }
+        break;
+      default:
+        // object value mode never emits the fields of an object
+        fail(new DecodeException("Unexpected JSON event: " + event.type()));
+    }
+  }
+
+  private void fail(Throwable t) {
+    if (failed) {
+      return;
+    }
+    failed = true;
+    // the rest of the request is drained and ignored
+    parser.handler(null);
+    context.request().resume();
+
+    final Handler<Throwable> exceptionHandler = this.exceptionHandler;
+    if (exceptionHandler != null) {
+      exceptionHandler.handle(t);
+    } else if (!context.failed()) {
+      if (t instanceof HttpStatusException) {
+        context.fail(((HttpStatusException) t).getStatusCode(), t);
+      } else if (t instanceof DecodeException) {
+        context.fail(400, t);
+      } else {
+        context.fail(t);
+      }
+    }
+  }
+
+  /**
+   * The request, failing with a {@code 413} once more than {@code bodyLimit} bytes are received.
+   */
+  private static final class LimitedRequest implements ReadStream<Buffer> {
+
+    private final HttpServerRequest request;
+    private final long bodyLimit;
+    private Handler<Throwable> exceptionHandler;
+    private long size;
+
+    LimitedRequest(HttpServerRequest request, long bodyLimit) {
+      this.request = request;
+      this.bodyLimit = bodyLimit;
+    }
+
+    @Override
+    public ReadStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+      this.exceptionHandler = handler;
+      request.exceptionHandler(handler);
+      return this;
+    }
+
+    @Override
+    public ReadStream<Buffer> handler(Handler<Buffer> handler) {
+      if (handler == null || bodyLimit == -1) {
+        request.handler(handler);
+      } else {
+        request.handler(buff -> {
+          size += buff.length();
+          if (size > bodyLimit) {
+            request.handler(null);
+            if (exceptionHandler != null) {
+              exceptionHandler.handle(new HttpStatusException(413));
+            }
+          } else {
+            handler.handle(buff);
+          }
+        });
+      }
+      return this;
+    }
+
+    @Override
+    public ReadStream<Buffer> pause() {
+      request.pause();
+      return this;
+    }
+
+    @Override
+    public ReadStream<Buffer> resume() {
+      request.resume();
+      return this;
+    }
+
+    @Override
+    public ReadStream<Buffer> fetch(long amount) {
+      request.fetch(amount);
+      return this;
+    }
+
+    @Override
+    public ReadStream<Buffer> endHandler(Handler<Void> endHandler) {
+      request.endHandler(endHandler);
+      return this;
+    }
+  }
+}
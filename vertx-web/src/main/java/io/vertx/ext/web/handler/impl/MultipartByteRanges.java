@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.handler.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.impl.VertxInternal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A {@code multipart/byteranges} response (rfc7233 appendix A) for a request with several byte ranges.
+ * <p>
+ * The part headers are computed up front so the {@code Content-Length} of the response is exact. The ranges are
+ * memory mapped, once, on a worker thread and written straight from the mappings in small slices, following the
+ * back pressure of the response, so they are never copied on the heap.
+ */
+final class MultipartByteRanges {
+
+  // more ranges than this are most likely abusive, the whole file is sent instead
+  private static final int MAX_RANGES = 32;
+  // the size of the slices written to the response
+  private static final int CHUNK_SIZE = 64 * 1024;
+  // the size of a single mapping
+  private static final long MAX_MAPPING_SIZE = 1 << 30;
+
+  private final long[] ranges;
+  private final String boundary;
+  private final Buffer[] partHeaders;
+  private final Buffer trailer;
+  private final long contentLength;
+
+  /**
+   * @param ranges the satisfiable ranges as returned by {@link #parse(String, long)}
+   * @param size the size of the file
+   * @param contentType the content type of the file or {@code null}
+   */
+  MultipartByteRanges(long[] ranges, long size, String contentType) {
+    this.ranges = ranges;
+    this.boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE) +
+      Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    this.partHeaders = new Buffer[ranges.length / 2];
+
+    long length = 0;
+    for (int i = 0; i < partHeaders.length; i++) {
+      final long start = ranges[2 * i];
+      final long end = ranges[2 * i + 1];
+      final StringBuilder sb = new StringBuilder(128)
+        .append("\r\n--").append(boundary).append("\r\n");
+      if (contentType != null) {
+        sb.append("Content-Type: ").append(contentType).append("\r\n");
+      }
+      sb.append("Content-Range: bytes ").append(start).append('-').append(end).append('/').append(size).append("\r\n")
+        .append("\r\n");
+      partHeaders[i] = Buffer.buffer(sb.toString(), StandardCharsets.ISO_8859_1.name());
+      length += partHeaders[i].length() + end + 1 - start;
+    }
+    this.trailer = Buffer.buffer("\r\n--" + boundary + "--\r\n", StandardCharsets.ISO_8859_1.name());
+    this.contentLength = length + trailer.length();
+  }
+
+  /**
+   * Parses a {@code Range} header with one or more ranges, including suffix ranges ({@code bytes=-500}).
+   *
+   * @param header the header value
+   * @param size the size of the file
+   * @return the inclusive start and end offsets of the satisfiable ranges, in request order, an empty array when none
+   * is satisfiable or {@code null} when the header must be ignored and the whole file sent
+   */
+  static long[] parse(String header, long size) {
+    if (!header.startsWith("bytes=")) {
+      return null;
+    }
+    final String[] specs = header.substring(6).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+
+    final long[] ranges = new long[2 * specs.length];
+    int n = 0;
+    long total = 0;
+
+    for (String spec : specs) {
+      final int dash = spec.indexOf('-');
+      if (dash == -1) {
+        return null;
+      }
+      final long first = parseDigits(spec.substring(0, dash).trim());
+      final long last = parseDigits(spec.substring(dash + 1).trim());
+      final long start;
+      long end;
+      if (first == -1) {
+        // suffix range, the last n bytes
+        if (last < 0) {
+          return null;
+        }
+        if (last == 0) {
+          continue;
+        }
+        start = Math.max(0, size - last);
+        end = size - 1;
+      } else {
+        if (first < 0 || last < -1 || (last >= 0 && last < first)) {
+          return null;
+        }
+        if (first >= size) {
+          continue;
+        }
+        start = first;
+        end = last == -1 ? size - 1 : Math.min(last, size - 1);
+      }
+      if (start > end) {
+        // empty file
+        continue;
+      }
+      ranges[n++] = start;
+      ranges[n++] = end;
+      total += end + 1 - start;
+    }
+
+    // overlapping ranges asking for more than the file, the whole file is cheaper
+    if (total > size) {
+      return null;
+    }
+    return Arrays.copyOf(ranges, n);
+  }
+
+  /**
+   * @return the value, {@code -1} when empty or {@code -2} when not made of digits only
+   */
+  private static long parseDigits(String value) {
+    if (value.isEmpty()) {
+      return -1;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (!Character.isDigit(value.charAt(i))) {
+        return -2;
+      }
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return -2;
+    }
+  }
+
+  String contentType() {
+    return "multipart/byteranges; boundary=" + boundary;
+  }
+
+  long contentLength() {
+    return contentLength;
+  }
+
+  /**
+   * Maps the ranges of the file and writes the response.
+   *
+   * @param handler called once the response is ended, or when it failed before it was ended
+   */
+  void send(Vertx vertx, String file, HttpServerResponse response, Handler<AsyncResult<Void>> handler) {
+    vertx.<ByteBuffer[][]>executeBlocking(promise -> {
+      // classpath resources are resolved to the file cache
+      try (FileChannel channel = FileChannel.open(((VertxInternal) vertx).resolveFile(file).toPath(), StandardOpenOption.READ)) {
+        final ByteBuffer[][] mappings = new ByteBuffer[partHeaders.length][];
+        for (int i = 0; i < mappings.length; i++) {
+          final long start = ranges[2 * i];
+          final long length = ranges[2 * i + 1] + 1 - start;
+          mappings[i] = new ByteBuffer[(int) ((length + MAX_MAPPING_SIZE - 1) / MAX_MAPPING_SIZE)];
+          for (int j = 0; j < mappings[i].length; j++) {
+            final long offset = j * MAX_MAPPING_SIZE;
+            // the mappings stay valid once the channel is closed
+            mappings[i][j] = channel.map(FileChannel.MapMode.READ_ONLY, start + offset, Math.min(MAX_MAPPING_SIZE, length - offset));
+          }
+        }
+        promise.complete(mappings);
+      } catch (IOException | RuntimeException e) {
+        promise.fail(e);
+      }
+    }, false, mapped -> {
+      if (mapped.failed()) {
+        handler.handle(Future.failedFuture(mapped.cause()));
+        return;
+      }
+      new Writer(response, mapped.result(), handler).write();
+    });
+  }
+
+  /**
+   * Writes the parts in slices, waiting for the response to drain when its write queue is full.
+   */
+  private final class Writer {
+    private final HttpServerResponse response;
+    private final ByteBuffer[][] mappings;
+    private final Handler<AsyncResult<Void>> handler;
+    // the position in the response: part, mapping of the part and slice of the mapping
+    private int part;
+    private int mapping = -1;
+    private ByteBuf current;
+
+    Writer(HttpServerResponse response, ByteBuffer[][] mappings, Handler<AsyncResult<Void>> handler) {
+      this.response = response;
+      this.mappings = mappings;
+      this.handler = handler;
+    }
+
+    void write() {
+      while (!response.writeQueueFull()) {
+        if (response.closed()) {
+          handler.handle(Future.failedFuture("Response closed"));
+          return;
+        }
+        if (current != null && current.isReadable()) {
+          response.write(Buffer.buffer(current.readSlice(Math.min(CHUNK_SIZE, current.readableBytes()))));
+        } else if (current != null && mapping + 1 < mappings[part].length) {
+          current = Unpooled.wrappedBuffer(mappings[part][++mapping]);
+        } else {
+          if (current != null) {
+            part++;
+          }
+          if (part == partHeaders.length) {
+            response.end(trailer, handler);
+            return;
+          }
+          response.write(partHeaders[part]);
+          mapping = 0;
+          current = Unpooled.wrappedBuffer(mappings[part][0]);
+        }
+      }
+      response.drainHandler(v -> write());
+    }
+  }
+}
@@ -22,21 +22,41 @@ import io.vertx.core.file.FileSystem;
 import io.vertx.core.http.*;
 import io.vertx.core.http.impl.HttpUtils;
 import io.vertx.core.http.impl.MimeMapping;
+import io.vertx.core.impl.VertxInternal;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.net.impl.URIDecoder;
 import io.vertx.ext.web.Http2PushMapping;
+import io.vertx.ext.web.ParsedHeaderValue;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.StaticHandler;
-import io.vertx.ext.web.impl.LRUCache;
+import io.vertx.ext.web.impl.ConcurrentCache;
 import io.vertx.ext.web.impl.Utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static io.netty.handler.codec.http.HttpResponseStatus.*;
 
@@ -51,18 +71,36 @@ public class StaticHandlerImpl implements StaticHandler {
 
   private static final Logger log = LoggerFactory.getLogger(StaticHandlerImpl.class);
 
+  private static final long MAX_DIRECTORY_LISTINGS_SIZE = 4 * 1024 * 1024;
+  // the parallelism of the warm up
+  private static final int WARM_POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+  // the digest of the resources pushed to the client
+  private static final String PUSH_COOKIE = "vertx-web.pushed";
+
   private String webRoot = DEFAULT_WEB_ROOT;
   private long maxAgeSeconds = DEFAULT_MAX_AGE_SECONDS; // One day
+  private String cacheControl = cacheControl(DEFAULT_MAX_AGE_SECONDS);
   private boolean directoryListing = DEFAULT_DIRECTORY_LISTING;
   private String directoryTemplateResource = DEFAULT_DIRECTORY_TEMPLATE;
   private String directoryTemplate;
   private boolean includeHidden = DEFAULT_INCLUDE_HIDDEN;
-  private boolean filesReadOnly = DEFAULT_FILES_READ_ONLY;
   private String indexPage = DEFAULT_INDEX_PAGE;
   private List<Http2PushMapping> http2PushMappings;
+  private volatile Future<PushManifest> pushManifest;
   private boolean rangeSupport = DEFAULT_RANGE_SUPPORT;
   private boolean allowRootFileSystemAccess = DEFAULT_ROOT_FILESYSTEM_ACCESS;
   private boolean sendVaryHeader = DEFAULT_SEND_VARY_HEADER;
+  private boolean watchWebRoot = DEFAULT_WATCH_WEB_ROOT;
+  // the watcher is started by the next request, the handler doesn't know the vertx instance before
+  private volatile boolean watchPending;
+  // the current watcher, its entries are only trusted once it is ready, see FSPropsCache#watcher
+  private WebRootWatcher watcher;
+  // the instance that closes the watcher when it is closed
+  private Vertx watcherVertx;
+  private boolean servePrecompressed = DEFAULT_SERVE_PRECOMPRESSED;
+  private boolean createPrecompressed = DEFAULT_CREATE_PRECOMPRESSED;
+  private boolean enableETag = DEFAULT_ENABLE_ETAG;
+  private boolean contentHashETag = DEFAULT_CONTENT_HASH_ETAG;
   private String defaultContentEncoding = Charset.defaultCharset().name();
 
   private Set<String> compressedMediaTypes = Collections.emptySet();
@@ -70,29 +108,46 @@ public class StaticHandlerImpl implements StaticHandler {
 
   private final FSTune tune = new FSTune();
   private final FSPropsCache cache = new FSPropsCache();
-
-  private String directoryTemplate(Vertx vertx) {
+  // the last modified time of the files already precompressed
+  private final Map<String, Long> precompressedTimes = new ConcurrentHashMap<>();
+  private final FileContentCache contentCache = new FileContentCache(DEFAULT_MAX_CONTENT_CACHE_SIZE, DEFAULT_MAX_CONTENT_CACHE_FILE_SIZE);
+  // the rendered directory listings, weighted by their size
+  private final ConcurrentCache<String, DirectoryListing> directoryListings = new ConcurrentCache<>(MAX_DIRECTORY_LISTINGS_SIZE, 0);
+  // the content hash of the files, for the size and last modified time that were hashed
+  private final Map<String, ContentHash> contentHashes = new ConcurrentHashMap<>();
+
+  private synchronized String directoryTemplate(Vertx vertx) {
     if (directoryTemplate == null) {
       directoryTemplate = Utils.readFileToString(vertx, directoryTemplateResource);
     }
     return directoryTemplate;
   }
 
+  private static String cacheControl(long maxAgeSeconds) {
+    return "public, immutable, max-age=" + maxAgeSeconds;
+  }
+
   /**
    * Create all required header so content can be cache by Caching servers or Browsers
    *
-   * @param request base HttpServerRequest
-   * @param props   file properties
+   * @param request  base HttpServerRequest
+   * @param response the response sending the file, the response of the request or a pushed response
+   * @param entry    the cached file properties
+   * @param etag     the entity tag or {@code null} when not sent
    */
-  private void writeCacheHeaders(HttpServerRequest request, FileProps props) {
+  private void writeCacheHeaders(HttpServerRequest request, HttpServerResponse response, CacheEntry entry, String etag) {
 
-    MultiMap headers = request.response().headers();
+    MultiMap headers = response.headers();
 
     if (cache.enabled()) {
-      // We use cache-control and last-modified
-      // We *do not use* etags and expires (since they do the same thing - redundant)
-      Utils.addToMapIfAbsent(headers, HttpHeaders.CACHE_CONTROL, "public, immutable, max-age=" + maxAgeSeconds);
-      Utils.addToMapIfAbsent(headers, HttpHeaders.LAST_MODIFIED, Utils.formatRFC1123DateTime(props.lastModifiedTime()));
+      // We use cache-control and last-modified, and optionally etags
+      // We *do not use* expires (since it does the same thing as cache-control - redundant)
+      // the values are computed once and cached with the file properties
+      Utils.addToMapIfAbsent(headers, HttpHeaders.CACHE_CONTROL, cacheControl);
+      Utils.addToMapIfAbsent(headers, HttpHeaders.LAST_MODIFIED, entry.lastModified);
+      if (etag != null) {
+        Utils.addToMapIfAbsent(headers, HttpHeaders.ETAG, etag);
+      }
       // We send the vary header (for intermediate caches)
       // (assumes that most will turn on compression when using static handler)
       if (sendVaryHeader && request.headers().contains(HttpHeaders.ACCEPT_ENCODING)) {
@@ -100,7 +155,7 @@ public class StaticHandlerImpl implements StaticHandler {
       }
     }
     // date header is mandatory
-    headers.set("date", Utils.formatRFC1123DateTime(System.currentTimeMillis()));
+    headers.set("date", Utils.currentRFC1123DateTime());
   }
 
   @Override
@@ -123,6 +178,10 @@ public class StaticHandlerImpl implements StaticHandler {
         path = indexPage;
       }
 
+      if (watchPending) {
+        watch(context.vertx());
+      }
+
       // can be called recursive for index pages
       sendStatic(context, path);
     }
@@ -130,10 +189,10 @@ public class StaticHandlerImpl implements StaticHandler {
 
   private void sendStatic(RoutingContext context, String path) {
 
-    String file = null;
+    // the cache is keyed by file, so it can be invalidated from the file system
+    final String file = getFile(path, context);
 
     if (!includeHidden) {
-      file = getFile(path, context);
       int idx = file.lastIndexOf('/');
       String name = file.substring(idx + 1);
       if (name.length() > 0 && name.charAt(0) == '.') {
@@ -144,39 +203,52 @@ public class StaticHandlerImpl implements StaticHandler {
     }
 
     // Look in cache
-    final CacheEntry entry = cache.get(path);
+    final CacheEntry entry = cache.get(file);
 
     if (entry != null) {
-      if ((filesReadOnly || !entry.isOutOfDate())) {
-        // a cache entry can mean 2 things:
-        // 1. a miss
-        // 2. a hit
+      // a cache entry can mean 2 things:
+      // 1. a miss
+      // 2. a hit
 
-        // a miss signals that we should continue the chain
-        if (entry.isMissing()) {
-          context.next();
-          return;
-        }
+      // a miss signals that we should continue the chain
+      if (entry.isMissing()) {
+        context.next();
+        return;
+      }
+
+      // a hit needs to be verified for freshness, without accessing the file system
+      final long lastModified = Utils.secondsFactor(entry.props.lastModifiedTime());
+      final String etag = enableETag ? entry.etag : null;
 
-        // a hit needs to be verified for freshness
-        final long lastModified = Utils.secondsFactor(entry.props.lastModifiedTime());
+      if (Utils.fresh(context, etag, lastModified)) {
+        notModified(context, etag);
+        return;
+      }
 
-        if (Utils.fresh(context, lastModified)) {
-          context.response()
-            .setStatusCode(NOT_MODIFIED.code())
-            .end();
+      // the client may hold a precompressed representation
+      if (servePrecompressed && etag != null && context.request().headers().contains(HttpHeaders.IF_NONE_MATCH)) {
+        final CacheEntry precompressed = cachedPrecompressed(context, file, entry);
+        if (precompressed != null && Utils.fresh(context, precompressed.etag, lastModified)) {
+          notModified(context, precompressed.etag);
           return;
         }
       }
+
+      // a watched entry is invalidated as soon as the file changes, and the content of this version of the file may
+      // be in memory: the file is served without checking it on the file system
+      if (cache.watched() || (contentCache.enabled() && contentCache.get(file, entry.props) != null)) {
+        sendFile(context, file, entry);
+        return;
+      }
     }
 
     final boolean dirty = cache.enabled() && entry != null;
-    final String sfile = file == null ? getFile(path, context) : file;
+    final long generation = cache.generation();
 
     // verify if the file exists
     context.vertx()
       .fileSystem()
-      .exists(sfile, exists -> {
+      .exists(file, exists -> {
         if (exists.failed()) {
           context.fail(exists.cause());
           return;
@@ -185,37 +257,40 @@ public class StaticHandlerImpl implements StaticHandler {
         // file does not exist, continue...
         if (!exists.result()) {
           if (cache.enabled()) {
-            cache.put(path, null);
+            cache.put(file, null, generation);
           }
           context.next();
           return;
         }
 
         // Need to read the props from the filesystem
-        getFileProps(context, sfile, res -> {
+        getFileProps(context, file, res -> {
           if (res.succeeded()) {
             FileProps fprops = res.result();
             if (fprops == null) {
               // File does not exist
               if (dirty) {
-                cache.remove(path);
+                cache.remove(file);
               }
               context.next();
             } else if (fprops.isDirectory()) {
               if (dirty) {
-                cache.remove(path);
+                cache.remove(file);
               }
-              sendDirectory(context, path, sfile);
+              sendDirectory(context, path, file, fprops);
             } else {
+              final CacheEntry fentry = cache.put(file, fprops, generation);
+              if (enableETag && contentHashETag) {
+                hashContent(context.vertx(), file, fentry);
+              }
               if (cache.enabled()) {
-                cache.put(path, fprops);
-
-                if (Utils.fresh(context, Utils.secondsFactor(fprops.lastModifiedTime()))) {
-                  context.response().setStatusCode(NOT_MODIFIED.code()).end();
+                final String etag = enableETag ? fentry.etag : null;
+                if (Utils.fresh(context, etag, Utils.secondsFactor(fprops.lastModifiedTime()))) {
+                  notModified(context, etag);
                   return;
                 }
               }
-              sendFile(context, sfile, fprops);
+              sendFile(context, file, fentry);
             }
           } else {
             context.fail(res.cause());
@@ -224,7 +299,69 @@ public class StaticHandlerImpl implements StaticHandler {
       });
   }
 
-  private void sendDirectory(RoutingContext context, String path, String file) {
+  private void notModified(RoutingContext context, String etag) {
+    final HttpServerResponse response = context.response();
+    // a 304 carries the same validators and cache directives as a 200
+    response.putHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+    if (etag != null) {
+      response.putHeader(HttpHeaders.ETAG, etag);
+    }
+    if (servePrecompressed) {
+      response.putHeader(HttpHeaders.VARY, "accept-encoding");
+    }
+    response.putHeader("date", Utils.currentRFC1123DateTime());
+    response
+      .setStatusCode(NOT_MODIFIED.code())
+      .end();
+  }
+
+  /**
+   * Hashes the content of a file in the background, once per file version, the ETag of the cached properties is
+   * replaced by the hash when it is available.
+   */
+  private void hashContent(Vertx vertx, String file, CacheEntry entry) {
+    final ContentHash hash = contentHashes.get(file);
+    if (hash != null && hash.matches(entry.props)) {
+      // hashed or being hashed
+      if (hash.etag != null) {
+        entry.etag = hash.etag;
+      }
+      return;
+    }
+    final ContentHash pending = new ContentHash(entry.props, null);
+    if (hash == null ? contentHashes.putIfAbsent(file, pending) != null : !contentHashes.replace(file, hash, pending)) {
+      // another request is hashing the file
+      return;
+    }
+    vertx.<String>executeBlocking(promise -> {
+      try {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        // classpath resources are resolved to the file cache
+        try (InputStream in = Files.newInputStream(((VertxInternal) vertx).resolveFile(file).toPath())) {
+          final byte[] buf = new byte[8192];
+          int read;
+          while ((read = in.read(buf)) != -1) {
+            digest.update(buf, 0, read);
+          }
+        }
+        promise.complete('"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + '"');
+      } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+        promise.fail(e);
+      }
+    }, false, res -> {
+      if (res.succeeded()) {
+        if (contentHashes.replace(file, pending, new ContentHash(entry.props, res.result()))) {
+          entry.etag = res.result();
+        }
+      } else {
+        log.debug("Failed to hash " + file, res.cause());
+        // the next request tries again
+        contentHashes.remove(file, pending);
+      }
+    });
+  }
+
+  private void sendDirectory(RoutingContext context, String path, String file, FileProps props) {
     // in order to keep caches in a valid state we need to assert that
     // the user is requesting a directory (ends with /)
     if (!path.endsWith("/")) {
@@ -236,7 +373,7 @@ public class StaticHandlerImpl implements StaticHandler {
     }
 
     if (directoryListing) {
-      sendDirectoryListing(file, context);
+      sendDirectoryListing(file, props, context);
     } else if (indexPage != null) {
       // send index page
       String indexPath;
@@ -273,12 +410,186 @@ public class StaticHandlerImpl implements StaticHandler {
     }
   }
 
+  private static final List<String> PRECOMPRESSED_ENCODINGS = Arrays.asList("br", "gzip");
+  // smaller files are not worth compressing
+  private static final long MIN_PRECOMPRESS_SIZE = 1024;
+
   private static final Pattern RANGE = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
 
-  private void sendFile(RoutingContext context, String file, FileProps fileProps) {
+  private void sendFile(RoutingContext context, String file, CacheEntry entry) {
+    final FileProps fileProps = entry.props;
+    if (servePrecompressed && context.request().getHeader("Range") == null) {
+      final List<String> encodings = precompressedEncodings(context.parsedHeaders().acceptEncoding());
+      if (createPrecompressed && encodings.contains("gzip")) {
+        precompress(context.vertx(), file, fileProps);
+      }
+      if (!encodings.isEmpty()) {
+        findPrecompressed(context, file, fileProps, encodings, 0, precompressed -> sendFile(context, file, entry, precompressed));
+        return;
+      }
+    }
+    sendFile(context, file, entry, null);
+  }
+
+  /**
+   * @return the encodings of the precompressed files acceptable by the client, in order of preference
+   */
+  private static List<String> precompressedEncodings(List<ParsedHeaderValue> acceptEncoding) {
+    if (acceptEncoding.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<String> encodings = new ArrayList<>(2);
+    final Set<String> refused = new HashSet<>();
+    // the values are sorted by weight
+    for (ParsedHeaderValue value : acceptEncoding) {
+      final String encoding = value.value().toLowerCase();
+      // q=0 refuses the encoding (rfc7231 states the least possible weight above 0 is 0.001)
+      if (value.weight() < 0.001f) {
+        refused.add(encoding);
+        continue;
+      }
+      switch (encoding) {
+        case "br":
+        case "gzip":
+          if (!encodings.contains(encoding)) {
+            encodings.add(encoding);
+          }
+          break;
+        case "*":
+          for (String any : PRECOMPRESSED_ENCODINGS) {
+            if (!encodings.contains(any) && !refused.contains(any)) {
+              encodings.add(any);
+            }
+          }
+          break;
+        case "identity":
+          // preferred over the encodings that follow
+          return encodings;
+      }
+    }
+    return encodings;
+  }
+
+  private static String precompressedSuffix(String encoding) {
+    return "br".equals(encoding) ? ".br" : ".gz";
+  }
+
+  /**
+   * Looks up the first precompressed file for the given encodings, the files found (or not) are kept in the
+   * properties cache.
+   */
+  private void findPrecompressed(RoutingContext context, String file, FileProps fileProps, List<String> encodings, int index, Handler<Precompressed> handler) {
+    if (index == encodings.size()) {
+      handler.handle(null);
+      return;
+    }
+
+    final String encoding = encodings.get(index);
+    final String suffix = precompressedSuffix(encoding);
+    final CacheEntry entry = cache.get(file + suffix);
+
+    if (entry != null) {
+      if (entry.isMissing() || entry.props.lastModifiedTime() < fileProps.lastModifiedTime()) {
+        findPrecompressed(context, file, fileProps, encodings, index + 1, handler);
+      } else {
+        handler.handle(new Precompressed(encoding, file + suffix, entry));
+      }
+      return;
+    }
+
+    final long generation = cache.generation();
+    context.vertx().fileSystem().props(file + suffix, props -> {
+      if (props.succeeded() && props.result().isRegularFile()) {
+        final CacheEntry precompressed = cache.put(file + suffix, props.result(), generation);
+        // a precompressed file older than the file is stale
+        if (props.result().lastModifiedTime() >= fileProps.lastModifiedTime()) {
+          handler.handle(new Precompressed(encoding, file + suffix, precompressed));
+          return;
+        }
+      } else {
+        cache.put(file + suffix, null, generation);
+      }
+      findPrecompressed(context, file, fileProps, encodings, index + 1, handler);
+    });
+  }
+
+  /**
+   * Looks up the precompressed file that would be sent to the client in the properties cache only.
+   *
+   * @return the precompressed file entry or {@code null} when there is none or it isn't known without accessing the
+   * file system
+   */
+  private CacheEntry cachedPrecompressed(RoutingContext context, String file, CacheEntry entry) {
+    for (String encoding : precompressedEncodings(context.parsedHeaders().acceptEncoding())) {
+      final CacheEntry precompressed = cache.get(file + precompressedSuffix(encoding));
+      if (precompressed == null) {
+        return null;
+      }
+      if (!precompressed.isMissing() && precompressed.props.lastModifiedTime() >= entry.props.lastModifiedTime()) {
+        return precompressed;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Writes the gzip precompressed file of a file in the background, when it doesn't exist yet.
+   */
+  private void precompress(Vertx vertx, String file, FileProps fileProps) {
+    if (fileProps.size() < MIN_PRECOMPRESS_SIZE || compressedFileSuffixes.contains(getFileExtension(file)) ||
+      compressedMediaTypes.contains(MimeMapping.getMimeTypeForFilename(file))) {
+      return;
+    }
+    final Long previous = precompressedTimes.put(file, fileProps.lastModifiedTime());
+    if (previous != null && previous == fileProps.lastModifiedTime()) {
+      return;
+    }
+    vertx.<Void>executeBlocking(promise -> {
+      final Path source = Paths.get(file);
+      final Path target = Paths.get(file + ".gz");
+      try {
+        // only files on the file system can be precompressed, not the classpath resources
+        if (Files.isRegularFile(source) &&
+          (!Files.exists(target) || Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(source)) < 0)) {
+          final Path tmp = Files.createTempFile(source.toAbsolutePath().getParent(), ".", ".gz.tmp");
+          try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+              Files.copy(source, out);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+          } finally {
+            Files.deleteIfExists(tmp);
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        log.debug("Failed to precompress " + file, e);
+      }
+      promise.complete();
+    }, false, done -> {
+      // the next request looks it up again
+      cache.remove(file + ".gz");
+    });
+  }
+
+  private void sendFile(RoutingContext context, String file, CacheEntry entry, Precompressed precompressed) {
     final HttpServerRequest request = context.request();
     final HttpServerResponse response = context.response();
 
+    PushManifest manifest = null;
+    if (http2PushMappings != null) {
+      final Future<PushManifest> pending = pushManifest(context.vertx());
+      if (!pending.isComplete()) {
+        // the manifest is resolved once, the first response waits for it
+        pending.onComplete(v -> sendFile(context, file, entry, precompressed));
+        return;
+      }
+      manifest = pending.result();
+    }
+
+    final FileProps fileProps = entry.props;
+    // each encoding is a different representation, the precompressed files have their own tag
+    final String etag = enableETag ? (precompressed == null ? entry.etag : precompressed.entry.etag) : null;
+
     Long offset = null;
     Long end = null;
     MultiMap headers = null;
@@ -286,11 +597,17 @@ public class StaticHandlerImpl implements StaticHandler {
     if (response.closed())
       return;
 
+    if (precompressed != null && etag != null && cache.enabled() &&
+      Utils.fresh(context, etag, Utils.secondsFactor(fileProps.lastModifiedTime()))) {
+      notModified(context, etag);
+      return;
+    }
+
     if (rangeSupport) {
       // check if the client is making a range request
       String range = request.getHeader("Range");
       // end byte is length - 1
-      end = fileProps.size() - 1;
+      end = (precompressed == null ? fileProps : precompressed.entry.props).size() - 1;
 
       if (range != null) {
         Matcher m = RANGE.matcher(range);
@@ -314,10 +631,24 @@ public class StaticHandlerImpl implements StaticHandler {
               }
             }
           } catch (NumberFormatException | IndexOutOfBoundsException e) {
-            context.response().putHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileProps.size());
-            context.fail(REQUESTED_RANGE_NOT_SATISFIABLE.code());
+            rangeNotSatisfiable(context, fileProps);
             return;
           }
+        } else {
+          // several ranges or a suffix range
+          final long[] ranges = MultipartByteRanges.parse(range, fileProps.size());
+          if (ranges != null) {
+            if (ranges.length == 0) {
+              rangeNotSatisfiable(context, fileProps);
+              return;
+            }
+            if (ranges.length > 2) {
+              sendByteRanges(context, file, entry, etag, ranges);
+              return;
+            }
+            offset = ranges[0];
+            end = ranges[1];
+          }
         }
       }
 
@@ -328,7 +659,15 @@ public class StaticHandlerImpl implements StaticHandler {
       headers.set(HttpHeaders.CONTENT_LENGTH, Long.toString(end + 1 - (offset == null ? 0 : offset)));
     }
 
-    writeCacheHeaders(request, fileProps);
+    writeCacheHeaders(request, response, entry, etag);
+
+    if (servePrecompressed) {
+      // the response depends on the accepted encodings, even when the file isn't precompressed
+      Utils.addToMapIfAbsent(response.headers(), HttpHeaders.VARY, "accept-encoding");
+      if (precompressed != null) {
+        response.putHeader(HttpHeaders.CONTENT_ENCODING, precompressed.encoding);
+      }
+    }
 
     if (request.method() == HttpMethod.HEAD) {
       response.end();
@@ -342,13 +681,9 @@ public class StaticHandlerImpl implements StaticHandler {
         final long finalOffset = offset;
         final long finalLength = end + 1 - offset;
         // guess content type
-        String contentType = MimeMapping.getMimeTypeForFilename(file);
+        String contentType = fileContentType(file);
         if (contentType != null) {
-          if (contentType.startsWith("text")) {
-            response.putHeader(HttpHeaders.CONTENT_TYPE, contentType + ";charset=" + defaultContentEncoding);
-          } else {
-            response.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
-          }
+          response.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
         }
 
         response.sendFile(file, finalOffset, finalLength, res2 -> {
@@ -357,68 +692,48 @@ public class StaticHandlerImpl implements StaticHandler {
           }
         });
       } else {
+        final boolean cacheContent = precompressed == null && contentCache.enabled() && contentCache.accepts(fileProps);
+        final FileContentCache.Entry cached = cacheContent ? contentCache.get(file, fileProps) : null;
         // guess content type
         String extension = getFileExtension(file);
         String contentType = MimeMapping.getMimeTypeForExtension(extension);
-        if (compressedMediaTypes.contains(contentType) || compressedFileSuffixes.contains(extension)) {
-          response.putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
-        }
-        if (contentType != null) {
-          if (contentType.startsWith("text")) {
-            response.putHeader(HttpHeaders.CONTENT_TYPE, contentType + ";charset=" + defaultContentEncoding);
-          } else {
-            response.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
+        if (cached != null) {
+          response.headers().addAll(cached.headers);
+        } else {
+          if (precompressed == null && (compressedMediaTypes.contains(contentType) || compressedFileSuffixes.contains(extension))) {
+            response.putHeader(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
           }
-        }
-
-        // http2 pushing support
-        if (request.version() == HttpVersion.HTTP_2 && http2PushMappings != null) {
-          for (Http2PushMapping dependency : http2PushMappings) {
-            if (!dependency.isNoPush()) {
-              final String dep = webRoot + "/" + dependency.getFilePath();
-              // get the file props
-              getFileProps(context, dep, filePropsAsyncResult -> {
-                if (filePropsAsyncResult.succeeded()) {
-                  // push
-                  writeCacheHeaders(request, filePropsAsyncResult.result());
-                  response.push(HttpMethod.GET, "/" + dependency.getFilePath(), pushAsyncResult -> {
-                    if (pushAsyncResult.succeeded()) {
-                      HttpServerResponse res = pushAsyncResult.result();
-                      final String depContentType = MimeMapping.getMimeTypeForExtension(file);
-                      if (depContentType != null) {
-                        if (depContentType.startsWith("text")) {
-                          res.putHeader(HttpHeaders.CONTENT_TYPE, contentType + ";charset=" + defaultContentEncoding);
-                        } else {
-                          res.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
-                        }
-                      }
-                      res.sendFile(webRoot + "/" + dependency.getFilePath());
-                    }
-                  });
-                }
-              });
+          if (contentType != null) {
+            if (contentType.startsWith("text")) {
+              response.putHeader(HttpHeaders.CONTENT_TYPE, contentType + ";charset=" + defaultContentEncoding);
+            } else {
+              response.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
             }
           }
+        }
 
-        } else if (http2PushMappings != null) {
-          //Link preload when file push is not supported
-          List<String> links = new ArrayList<>();
-          for (Http2PushMapping dependency : http2PushMappings) {
-            final String dep = webRoot + "/" + dependency.getFilePath();
-            // get the file props
-            getFileProps(context, dep, filePropsAsyncResult -> {
-              if (filePropsAsyncResult.succeeded()) {
-                // push
-                writeCacheHeaders(request, filePropsAsyncResult.result());
-                links.add("<" + dependency.getFilePath() + ">; rel=preload; as="
-                  + dependency.getExtensionTarget() + (dependency.isNoPush() ? "; nopush" : ""));
-              }
-            });
+        // http2 pushing support, from the resolved manifest
+        if (manifest != null) {
+          if (request.version() == HttpVersion.HTTP_2) {
+            push(context, manifest);
+          } else if (!manifest.links.isEmpty()) {
+            //Link preload when file push is not supported
+            response.putHeader("Link", manifest.links);
           }
-          response.putHeader("Link", links);
         }
 
-        response.sendFile(file, res2 -> {
+        if (cached != null) {
+          // no file system access at all
+          response.end(cached.content());
+          return;
+        }
+
+        if (cacheContent) {
+          // the content is cached for the next requests
+          contentCache.load(context.vertx(), file, fileProps, contentHeaders(response.headers()));
+        }
+
+        response.sendFile(precompressed == null ? file : precompressed.file, res2 -> {
           if (res2.failed()) {
             context.fail(res2.cause());
           }
@@ -427,6 +742,143 @@ public class StaticHandlerImpl implements StaticHandler {
     }
   }
 
+  private void rangeNotSatisfiable(RoutingContext context, FileProps fileProps) {
+    context.response().putHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileProps.size());
+    context.fail(REQUESTED_RANGE_NOT_SATISFIABLE.code());
+  }
+
+  private String fileContentType(String file) {
+    String contentType = MimeMapping.getMimeTypeForFilename(file);
+    if (contentType != null && contentType.startsWith("text")) {
+      return contentType + ";charset=" + defaultContentEncoding;
+    }
+    return contentType;
+  }
+
+  /**
+   * Sends a {@code multipart/byteranges} response, the ranges are written straight from the file.
+   */
+  private void sendByteRanges(RoutingContext context, String file, CacheEntry entry, String etag, long[] ranges) {
+    final HttpServerRequest request = context.request();
+    final HttpServerResponse response = context.response();
+    final MultipartByteRanges byteRanges = new MultipartByteRanges(ranges, entry.props.size(), fileContentType(file));
+
+    response.headers()
+      .set(HttpHeaders.ACCEPT_RANGES, "bytes")
+      .set(HttpHeaders.CONTENT_TYPE, byteRanges.contentType())
+      // the parts are known up front, the length is exact even for HEAD requests
+      .set(HttpHeaders.CONTENT_LENGTH, Long.toString(byteRanges.contentLength()));
+    writeCacheHeaders(request, response, entry, etag);
+    if (servePrecompressed) {
+      Utils.addToMapIfAbsent(response.headers(), HttpHeaders.VARY, "accept-encoding");
+    }
+    response.setStatusCode(PARTIAL_CONTENT.code());
+
+    if (request.method() == HttpMethod.HEAD) {
+      response.end();
+      return;
+    }
+
+    byteRanges.send(context.vertx(), file, response, res -> {
+      if (res.failed()) {
+        if (response.headWritten()) {
+          log.debug("Failed to send the ranges of " + file, res.cause());
+        } else {
+          context.fail(res.cause());
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the push manifest, resolved once for the current mappings and web root
+   */
+  private Future<PushManifest> pushManifest(Vertx vertx) {
+    final Future<PushManifest> manifest = this.pushManifest;
+    if (manifest != null && (!manifest.isComplete() || (manifest.succeeded() && !manifest.result().isStale(cache.generation())))) {
+      return manifest;
+    }
+    final List<Http2PushMapping> mappings = http2PushMappings;
+    final String webRoot = this.webRoot;
+    final long generation = cache.generation();
+    final long timeToLive = cache.timeToLive(generation);
+    // a race only resolves the manifest twice
+    final Future<PushManifest> resolved = vertx.executeBlocking(promise -> {
+      final List<PushResource> resources = new ArrayList<>();
+      final List<String> links = new ArrayList<>();
+      final StringBuilder digest = new StringBuilder();
+      for (Http2PushMapping dependency : mappings) {
+        final String dep = webRoot + "/" + dependency.getFilePath();
+        final FileProps props;
+        try {
+          props = vertx.fileSystem().propsBlocking(dep);
+        } catch (RuntimeException e) {
+          // missing files are neither pushed nor preloaded
+          continue;
+        }
+        if (!dependency.isNoPush()) {
+          resources.add(new PushResource("/" + dependency.getFilePath(), dep, fileContentType(dep), new CacheEntry(props)));
+          digest.append(dep).append(props.size()).append(props.lastModifiedTime());
+        }
+        links.add("<" + dependency.getFilePath() + ">; rel=preload; as="
+          + dependency.getExtensionTarget() + (dependency.isNoPush() ? "; nopush" : ""));
+      }
+      promise.complete(new PushManifest(
+        resources,
+        links,
+        Integer.toHexString(digest.toString().hashCode()),
+        generation,
+        timeToLive == 0 ? 0 : System.currentTimeMillis() + timeToLive));
+    }, false);
+    this.pushManifest = resolved;
+    return resolved;
+  }
+
+  /**
+   * Pushes the resources of the manifest, unless the client got them already.
+   */
+  private void push(RoutingContext context, PushManifest manifest) {
+    if (manifest.resources.isEmpty()) {
+      return;
+    }
+    // the cookie is the digest of the pushed resources, when they change they are pushed again
+    final Cookie pushed = context.getCookie(PUSH_COOKIE);
+    if (pushed != null && manifest.digest.equals(pushed.getValue())) {
+      return;
+    }
+
+    final HttpServerRequest request = context.request();
+    for (PushResource resource : manifest.resources) {
+      request.response().push(HttpMethod.GET, resource.path, pushAsyncResult -> {
+        if (pushAsyncResult.succeeded()) {
+          HttpServerResponse res = pushAsyncResult.result();
+          if (resource.contentType != null) {
+            res.putHeader(HttpHeaders.CONTENT_TYPE, resource.contentType);
+          }
+          writeCacheHeaders(request, res, resource.entry, enableETag ? resource.entry.etag : null);
+          res.sendFile(resource.file);
+        }
+      });
+    }
+    context.addCookie(Cookie.cookie(PUSH_COOKIE, manifest.digest)
+      .setPath("/")
+      .setMaxAge(maxAgeSeconds)
+      .setHttpOnly(true));
+  }
+
+  private static MultiMap contentHeaders(MultiMap headers) {
+    final MultiMap contentHeaders = MultiMap.caseInsensitiveMultiMap();
+    final String contentType = headers.get(HttpHeaders.CONTENT_TYPE);
+    if (contentType != null) {
+      contentHeaders.set(HttpHeaders.CONTENT_TYPE, contentType);
+    }
+    final String contentEncoding = headers.get(HttpHeaders.CONTENT_ENCODING);
+    if (contentEncoding != null) {
+      contentHeaders.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+    }
+    return contentHeaders;
+  }
+
   @Override
   public StaticHandler setAllowRootFileSystemAccess(boolean allowRootFileSystemAccess) {
     this.allowRootFileSystemAccess = allowRootFileSystemAccess;
@@ -439,9 +891,21 @@ public class StaticHandlerImpl implements StaticHandler {
     return this;
   }
 
+  @Override
+  public synchronized StaticHandler setWatchWebRoot(boolean watchWebRoot) {
+    this.watchWebRoot = watchWebRoot;
+    if (watchWebRoot) {
+      watchPending = true;
+    } else {
+      watchPending = false;
+      unwatch();
+    }
+    return this;
+  }
+
   @Override
   public StaticHandler setFilesReadOnly(boolean readOnly) {
-    this.filesReadOnly = readOnly;
+    cache.setFilesReadOnly(readOnly);
     return this;
   }
 
@@ -451,6 +915,7 @@ public class StaticHandlerImpl implements StaticHandler {
       throw new IllegalArgumentException("timeout must be >= 0");
     }
     this.maxAgeSeconds = maxAgeSeconds;
+    this.cacheControl = cacheControl(maxAgeSeconds);
     return this;
   }
 
@@ -460,6 +925,18 @@ public class StaticHandlerImpl implements StaticHandler {
     return this;
   }
 
+  @Override
+  public StaticHandler setMaxContentCacheSize(long maxContentCacheSize) {
+    contentCache.setMaxSize(maxContentCacheSize);
+    return this;
+  }
+
+  @Override
+  public StaticHandler setMaxContentCacheFileSize(long maxContentCacheFileSize) {
+    contentCache.setMaxFileSize(maxContentCacheFileSize);
+    return this;
+  }
+
   @Override
   public StaticHandler setCachingEnabled(boolean enabled) {
     cache.setEnabled(enabled);
@@ -473,9 +950,10 @@ public class StaticHandlerImpl implements StaticHandler {
   }
 
   @Override
-  public StaticHandler setDirectoryTemplate(String directoryTemplate) {
+  public synchronized StaticHandler setDirectoryTemplate(String directoryTemplate) {
     this.directoryTemplateResource = directoryTemplate;
     this.directoryTemplate = null;
+    directoryListings.clear();
     return this;
   }
 
@@ -488,6 +966,7 @@ public class StaticHandlerImpl implements StaticHandler {
   @Override
   public StaticHandler setIncludeHidden(boolean includeHidden) {
     this.includeHidden = includeHidden;
+    directoryListings.clear();
     return this;
   }
 
@@ -517,6 +996,7 @@ public class StaticHandlerImpl implements StaticHandler {
   public StaticHandler setHttp2PushMapping(List<Http2PushMapping> http2PushMap) {
     if (http2PushMap != null) {
       this.http2PushMappings = new ArrayList<>(http2PushMap);
+      this.pushManifest = null;
     }
     return this;
   }
@@ -555,12 +1035,143 @@ public class StaticHandlerImpl implements StaticHandler {
     return this;
   }
 
+  @Override
+  public StaticHandler setServePrecompressed(boolean servePrecompressed) {
+    this.servePrecompressed = servePrecompressed;
+    return this;
+  }
+
+  @Override
+  public StaticHandler setCreatePrecompressed(boolean createPrecompressed) {
+    this.createPrecompressed = createPrecompressed;
+    return this;
+  }
+
+  @Override
+  public StaticHandler setEnableETag(boolean enableETag) {
+    this.enableETag = enableETag;
+    return this;
+  }
+
+  @Override
+  public StaticHandler setContentHashETag(boolean contentHashETag) {
+    this.contentHashETag = contentHashETag;
+    return this;
+  }
+
   @Override
   public StaticHandler setDefaultContentEncoding(String contentEncoding) {
     this.defaultContentEncoding = contentEncoding;
     return this;
   }
 
+  @Override
+  public void warm(Vertx vertx, Handler<AsyncResult<Void>> handler) {
+    final String webRoot = this.webRoot;
+    final long start = System.nanoTime();
+    final long generation = cache.generation();
+    final WorkerExecutor executor = vertx.createSharedWorkerExecutor("vertx-web-static-warm", WARM_POOL_SIZE);
+
+    executor.<List<String>>executeBlocking(promise -> {
+      try {
+        promise.complete(listWebRoot(webRoot));
+      } catch (IOException | URISyntaxException | RuntimeException e) {
+        promise.fail(e);
+      }
+    }, false)
+      .compose(files -> {
+        final AtomicInteger resolved = new AtomicInteger();
+        // the progress is reported every 10%
+        final int step = Math.max(1, files.size() / 10);
+        final List<Future> futures = new ArrayList<>(WARM_POOL_SIZE);
+        for (int i = 0; i < WARM_POOL_SIZE; i++) {
+          final int first = i;
+          futures.add(executor.executeBlocking(promise -> {
+            for (int j = first; j < files.size(); j += WARM_POOL_SIZE) {
+              final String file = webRoot + '/' + files.get(j);
+              try {
+                // resolving a classpath resource extracts it to the file cache
+                final FileProps props = vertx.fileSystem().propsBlocking(file);
+                if (props.isRegularFile()) {
+                  cache.put(file, props, generation);
+                }
+              } catch (RuntimeException e) {
+                log.debug("Failed to warm " + file, e);
+              }
+              final int count = resolved.incrementAndGet();
+              if (count % step == 0 && count < files.size()) {
+                log.info("Warming " + webRoot + ": " + count + "/" + files.size() + " files");
+              }
+            }
+            promise.complete();
+          }, false));
+        }
+        return CompositeFuture.all(futures).map(all -> {
+          log.info("Warmed " + files.size() + " files of " + webRoot + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+          return (Void) null;
+        });
+      })
+      .onComplete(res -> {
+        executor.close();
+        handler.handle(res);
+      });
+  }
+
+  /**
+   * @return the paths of the files of the web root, relative to it, either on the file system or in the classpath
+   */
+  private static List<String> listWebRoot(String webRoot) throws IOException, URISyntaxException {
+    final Set<String> files = new LinkedHashSet<>();
+    final File dir = new File(webRoot);
+    if (dir.isDirectory()) {
+      listDirectory(dir.toPath(), files);
+      return new ArrayList<>(files);
+    }
+
+    ClassLoader cl = Thread.currentThread().getContextClassLoader();
+    if (cl == null) {
+      cl = StaticHandlerImpl.class.getClassLoader();
+    }
+    final Enumeration<URL> roots = cl.getResources(webRoot);
+    while (roots.hasMoreElements()) {
+      final URL url = roots.nextElement();
+      switch (url.getProtocol()) {
+        case "file":
+          listDirectory(Paths.get(url.toURI()), files);
+          break;
+        case "jar":
+          final JarURLConnection connection = (JarURLConnection) url.openConnection();
+          connection.setUseCaches(false);
+          try (JarFile jar = connection.getJarFile()) {
+            final String prefix = connection.getEntryName() + '/';
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+              final JarEntry entry = entries.nextElement();
+              if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                files.add(entry.getName().substring(prefix.length()));
+              }
+            }
+          }
+          break;
+        default:
+          log.debug("Cannot list the web root " + url);
+          break;
+      }
+    }
+    return new ArrayList<>(files);
+  }
+
+  private static void listDirectory(Path root, Set<String> files) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths
+        .filter(Files::isRegularFile)
+        .forEach(path -> files.add(root.relativize(path).toString().replace(File.separatorChar, '/')));
+    }
+  }
+
   private String getFile(String path, RoutingContext context) {
     String file = webRoot + Utils.pathOffset(path, context);
     if (log.isTraceEnabled()) log.trace("File to serve is " + file);
@@ -577,103 +1188,133 @@ public class StaticHandlerImpl implements StaticHandler {
       }
     }
     this.webRoot = webRoot;
+    this.pushManifest = null;
+    if (watchWebRoot) {
+      watchPending = true;
+    }
   }
 
-  private void sendDirectoryListing(String dir, RoutingContext context) {
-    final FileSystem fileSystem = context.vertx().fileSystem();
-    final HttpServerRequest request = context.request();
-    final HttpServerResponse response = context.response();
-
-    fileSystem.readDir(dir, asyncResult -> {
-      if (asyncResult.failed()) {
-        context.fail(asyncResult.cause());
-      } else {
-
-        String accept = request.headers().get("accept");
-        if (accept == null) {
-          accept = "text/plain";
-        }
-
-        if (accept.contains("html")) {
-          String normalizedDir = context.normalizedPath();
-          if (!normalizedDir.endsWith("/")) {
-            normalizedDir += "/";
-          }
+  /**
+   * (Re)starts watching the web root, the cached metadata of the files is invalidated when they change. The watcher
+   * is closed when vertx is closed.
+   * <p>
+   * The directories of the web root are registered by the watcher thread, the cache entries time out until then.
+   */
+  private synchronized void watch(Vertx vertx) {
+    if (!watchPending) {
+      // started by another request
+      return;
+    }
+    watchPending = false;
+    unwatch();
+    final WebRootWatcher watcher = WebRootWatcher.watch(
+      webRoot,
+      file -> {
+        cache.invalidate(file);
+        contentCache.remove(file);
+        contentHashes.remove(file);
+      },
+      () -> {
+        cache.clear();
+        contentCache.clear();
+        contentHashes.clear();
+        directoryListings.clear();
+      },
+      this::watching);
+    if (watcher != null) {
+      ((VertxInternal) vertx).addCloseHook(watcher);
+      watcherVertx = vertx;
+    }
+    this.watcher = watcher;
+  }
 
-          String file;
-          StringBuilder files = new StringBuilder("<ul id=\"files\">");
+  /**
+   * Called by the watcher thread once the web root is watched.
+   */
+  private synchronized void watching(WebRootWatcher watcher) {
+    if (this.watcher != watcher) {
+      // closed or replaced in the meantime
+      return;
+    }
+    // the properties read before may have changed without being reported
+    cache.clear();
+    cache.watcher = watcher;
+  }
 
-          List<String> list = asyncResult.result();
-          Collections.sort(list);
+  private synchronized void unwatch() {
+    final WebRootWatcher watcher = this.watcher;
+    if (watcher != null) {
+      watcher.close();
+      ((VertxInternal) watcherVertx).removeCloseHook(watcher);
+      this.watcher = null;
+      cache.watcher = null;
+      watcherVertx = null;
+    }
+  }
 
-          for (String s : list) {
-            file = s.substring(s.lastIndexOf(File.separatorChar) + 1);
-            // skip dot files
-            if (!includeHidden && file.charAt(0) == '.') {
-              continue;
-            }
-            files.append("<li><a href=\"");
-            files.append(normalizedDir);
-            files.append(file);
-            files.append("\" title=\"");
-            files.append(file);
-            files.append("\">");
-            files.append(file);
-            files.append("</a></li>");
-          }
+  private void sendDirectoryListing(String dir, FileProps props, RoutingContext context) {
+    final HttpServerRequest request = context.request();
+    final HttpServerResponse response = context.response();
 
-          files.append("</ul>");
+    String accept = request.headers().get("accept");
+    if (accept == null) {
+      accept = "text/plain";
+    }
 
-          // link to parent dir
-          int slashPos = 0;
-          for (int i = normalizedDir.length() - 2; i > 0; i--) {
-            if (normalizedDir.charAt(i) == '/') {
-              slashPos = i;
-              break;
-            }
-          }
+    final String format;
+    String normalizedDir = null;
+    if (accept.contains("html")) {
+      format = "html";
+      normalizedDir = context.normalizedPath();
+      if (!normalizedDir.endsWith("/")) {
+        normalizedDir += "/";
+      }
+    } else if (accept.contains("json")) {
+      format = "json";
+    } else {
+      format = "text";
+    }
 
-          String parent = "<a href=\"" + normalizedDir.substring(0, slashPos + 1) + "\">..</a>";
-
-          response
-            .putHeader(HttpHeaders.CONTENT_TYPE, "text/html")
-            .end(
-              directoryTemplate(context.vertx()).replace("{directory}", normalizedDir)
-                .replace("{parent}", parent)
-                .replace("{files}", files.toString()));
-        } else if (accept.contains("json")) {
-          String file;
-          JsonArray json = new JsonArray();
-
-          for (String s : asyncResult.result()) {
-            file = s.substring(s.lastIndexOf(File.separatorChar) + 1);
-            // skip dot files
-            if (!includeHidden && file.charAt(0) == '.') {
-              continue;
-            }
-            json.add(file);
-          }
-          response
-            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
-            .end(json.encode());
-        } else {
-          String file;
-          StringBuilder buffer = new StringBuilder();
-
-          for (String s : asyncResult.result()) {
-            file = s.substring(s.lastIndexOf(File.separatorChar) + 1);
-            // skip dot files
-            if (!includeHidden && file.charAt(0) == '.') {
-              continue;
-            }
-            buffer.append(file);
-            buffer.append('\n');
-          }
+    // the html listing links to the files with the requested path
+    final String key = normalizedDir == null ? format + ':' + dir : format + ':' + normalizedDir + ':' + dir;
+    final DirectoryListing cached = directoryListings.get(key);
+    if (cached != null && cached.lastModifiedTime == props.lastModifiedTime()) {
+      cached.send(response);
+      return;
+    }
 
-          response
-            .putHeader(HttpHeaders.CONTENT_TYPE, "text/plain")
-            .end(buffer.toString());
+    final Vertx vertx = context.vertx();
+    final String directory = normalizedDir;
+    // large directories are slow to read and render
+    vertx.<DirectoryListing>executeBlocking(promise -> {
+      final List<String> files = new ArrayList<>();
+      for (String s : vertx.fileSystem().readDirBlocking(dir)) {
+        String file = s.substring(s.lastIndexOf(File.separatorChar) + 1);
+        // skip dot files
+        if (!includeHidden && file.charAt(0) == '.') {
+          continue;
         }
+        files.add(file);
+      }
+      Collections.sort(files);
+
+      switch (format) {
+        case "html":
+          promise.complete(DirectoryListing.html(props.lastModifiedTime(), files, directoryTemplate(vertx), directory));
+          break;
+        case "json":
+          promise.complete(DirectoryListing.json(props.lastModifiedTime(), files));
+          break;
+        default:
+          promise.complete(DirectoryListing.text(props.lastModifiedTime(), files));
+          break;
+      }
+    }, false, res -> {
+      if (res.failed()) {
+        context.fail(res.cause());
+      } else {
+        directoryListings.put(key, res.result(), res.result().length());
+        res.result().send(response);
       }
     });
   }
@@ -687,19 +1328,89 @@ public class StaticHandlerImpl implements StaticHandler {
     }
   }
 
-  private static final class CacheEntry {
-    final long createDate = System.currentTimeMillis();
+  private static final class Precompressed {
+    final String encoding;
+    final String file;
+    final CacheEntry entry;
 
-    final FileProps props;
-    final long cacheEntryTimeout;
+    private Precompressed(String encoding, String file, CacheEntry entry) {
+      this.encoding = encoding;
+      this.file = file;
+      this.entry = entry;
+    }
+  }
 
-    private CacheEntry(FileProps props, long cacheEntryTimeout) {
-      this.props = props;
-      this.cacheEntryTimeout = cacheEntryTimeout;
+  private static final class PushResource {
+    final String path;
+    final String file;
+    final String contentType;
+    final CacheEntry entry;
+
+    private PushResource(String path, String file, String contentType, CacheEntry entry) {
+      this.path = path;
+      this.file = file;
+      this.contentType = contentType;
+      this.entry = entry;
+    }
+  }
+
+  private static final class PushManifest {
+    // the resources to push
+    final List<PushResource> resources;
+    // the ready made Link header values, when push is not supported
+    final List<String> links;
+    final String digest;
+    private final long generation;
+    private final long expiresAt;
+
+    private PushManifest(List<PushResource> resources, List<String> links, String digest, long generation, long expiresAt) {
+      this.resources = resources;
+      this.links = links;
+      this.digest = digest;
+      this.generation = generation;
+      this.expiresAt = expiresAt;
+    }
+
+    /**
+     * @return true when a file may have changed since the manifest was resolved
+     */
+    boolean isStale(long generation) {
+      return this.generation != generation || (expiresAt != 0 && System.currentTimeMillis() > expiresAt);
+    }
+  }
+
+  private static final class ContentHash {
+    final long size;
+    final long lastModifiedTime;
+    // null while hashing
+    final String etag;
+
+    private ContentHash(FileProps props, String etag) {
+      this.size = props.size();
+      this.lastModifiedTime = props.lastModifiedTime();
+      this.etag = etag;
     }
 
-    boolean isOutOfDate() {
-      return System.currentTimeMillis() - createDate > cacheEntryTimeout;
+    boolean matches(FileProps props) {
+      return size == props.size() && lastModifiedTime == props.lastModifiedTime();
+    }
+  }
+
+  private static final class CacheEntry {
+    final FileProps props;
+    // the validators are computed once, when the properties are read
+    final String lastModified;
+    // replaced by the content hash when enabled
+    volatile String etag;
+
+    private CacheEntry(FileProps props) {
+      this.props = props;
+      if (props != null) {
+        lastModified = Utils.formatRFC1123DateTime(props.lastModifiedTime());
+        etag = "\"" + Long.toHexString(props.size()) + '-' + Long.toHexString(props.lastModifiedTime()) + '"';
+      } else {
+        lastModified = null;
+      }
     }
 
     public boolean isMissing() {
@@ -767,9 +1478,14 @@ public class StaticHandlerImpl implements StaticHandler {
   }
 
   private static class FSPropsCache {
-    private Map<String, CacheEntry> propsCache;
-    private long cacheEntryTimeout = DEFAULT_CACHE_ENTRY_TIMEOUT;
+    private volatile ConcurrentCache<String, CacheEntry> propsCache;
+    private volatile long cacheEntryTimeout = DEFAULT_CACHE_ENTRY_TIMEOUT;
+    private volatile boolean filesReadOnly = DEFAULT_FILES_READ_ONLY;
     private int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+    // when watched, the entries don't time out as long as the watcher doesn't miss changes
+    private volatile WebRootWatcher watcher;
+    // incremented on each invalidation, an entry read from the file system before an invalidation may be stale
+    private final AtomicLong generation = new AtomicLong();
 
     FSPropsCache() {
       setEnabled(DEFAULT_CACHING_ENABLED);
@@ -800,7 +1516,7 @@ public class StaticHandlerImpl implements StaticHandler {
           propsCache.clear();
         }
         if (enable) {
-          propsCache = new LRUCache<>(maxCacheSize);
+          propsCache = new ConcurrentCache<>(maxCacheSize);
         } else {
           propsCache = null;
         }
@@ -814,13 +1530,47 @@ public class StaticHandlerImpl implements StaticHandler {
       this.cacheEntryTimeout = timeout;
     }
 
-    private void remove(String path) {
+    void setFilesReadOnly(boolean filesReadOnly) {
+      this.filesReadOnly = filesReadOnly;
+    }
+
+    private void remove(String file) {
+      final ConcurrentCache<String, CacheEntry> propsCache = this.propsCache;
+      if (propsCache != null) {
+        propsCache.remove(file);
+      }
+    }
+
+    long generation() {
+      return generation.get();
+    }
+
+    /**
+     * @return {@code true} when the changes of the files invalidate the cached entries
+     */
+    boolean watched() {
+      final WebRootWatcher watcher = this.watcher;
+      return enabled() && watcher != null && watcher.isReliable();
+    }
+
+    void invalidate(String file) {
+      generation.incrementAndGet();
+      remove(file);
+    }
+
+    void clear() {
+      generation.incrementAndGet();
+      final ConcurrentCache<String, CacheEntry> propsCache = this.propsCache;
       if (propsCache != null) {
-        propsCache.remove(path);
+        propsCache.clear();
       }
     }
 
+    /**
+     * @return the entry or {@code null} when the path isn't cached or the entry timed out
+     */
     CacheEntry get(String key) {
+      final ConcurrentCache<String, CacheEntry> propsCache = this.propsCache;
       if (propsCache != null) {
         return propsCache.get(key);
       }
@@ -828,11 +1578,32 @@ public class StaticHandlerImpl implements StaticHandler {
       return null;
     }
 
-    void put(String path, FileProps props) {
+    /**
+     * @param file the file
+     * @param props the properties or {@code null} when the file is missing
+     * @param generation the generation of the cache when the properties were read
+     * @return the entry, even when caching is disabled
+     */
+    CacheEntry put(String file, FileProps props, long generation) {
+      final CacheEntry entry = new CacheEntry(props);
+      final ConcurrentCache<String, CacheEntry> propsCache = this.propsCache;
       if (propsCache != null) {
-        CacheEntry now = new CacheEntry(props, cacheEntryTimeout);
-        propsCache.put(path, now);
+        propsCache.put(file, entry, 1, timeToLive(generation));
       }
+      return entry;
+    }
+
+    /**
+     * @param generation the generation of the cache when the properties were read
+     * @return the time to live of properties read from the file system, {@code 0} when they don't time out
+     */
+    long timeToLive(long generation) {
+      final WebRootWatcher watcher = this.watcher;
+      // read only files never change and watched files are invalidated when they change, their entries don't
+      // time out unless the file changed while its properties were read
+      final boolean timeout = !filesReadOnly &&
+        (watcher == null || !watcher.isReliable() || generation != this.generation.get());
+      return timeout ? cacheEntryTimeout : 0;
     }
   }
 }
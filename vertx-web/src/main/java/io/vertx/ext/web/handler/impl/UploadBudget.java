@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bytes of file uploads held in memory by a body handler, shared by all the requests it handles: the chunks
+ * waiting to be written to disk and the uploads kept in memory.
+ * <p>
+ * The budget is not a hard limit, a request going over it is paused until the other requests release enough bytes,
+ * see {@link #await(Context, Handler)}, or until its own writes complete. Each concurrent request can so hold the
+ * chunks it received when the budget was exhausted.
+ */
+final class UploadBudget {
+
+  private final long maxBytes;
+  private final AtomicLong inFlight = new AtomicLong();
+  private final Queue<Runnable> waiters = new ConcurrentLinkedQueue<>();
+
+  /**
+   * @param maxBytes the budget or {@code -1} for unlimited
+   */
+  UploadBudget(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return {@code true} unless the budget is unlimited
+   */
+  boolean limited() {
+    return maxBytes != -1;
+  }
+
+  /**
+   * Accounts bytes that are now held in memory.
+   *
+   * @return {@code false} when the budget is exhausted, the caller should then pause
+   */
+  boolean acquire(long bytes) {
+    final long current = inFlight.addAndGet(bytes);
+    return maxBytes == -1 || current <= maxBytes;
+  }
+
+  /**
+   * Accounts bytes only if they fit in the budget.
+   *
+   * @return {@code true} if the bytes were accounted
+   */
+  boolean tryAcquire(long bytes) {
+    if (maxBytes == -1) {
+      inFlight.addAndGet(bytes);
+      return true;
+    }
+    long current;
+    do {
+      current = inFlight.get();
+      if (current + bytes > maxBytes) {
+        return false;
+      }
+    } while (!inFlight.compareAndSet(current, current + bytes));
+    return true;
+  }
+
+  /**
+   * Releases bytes that are no longer held in memory, resuming the paused requests if the budget is available again.
+   */
+  void release(long bytes) {
+    inFlight.addAndGet(-bytes);
+    resumeWaiters();
+  }
+
+  /**
+   * Calls {@code resume} on the context once the budget is available again.
+   *
+   * @return the waiter, to {@link #cancel(Runnable) cancel} when the request resumes before
+   */
+  Runnable await(Context context, Handler<Void> resume) {
+    final Runnable waiter = () -> context.runOnContext(resume);
+    waiters.add(waiter);
+    // the budget may have been released while the waiter was added
+    resumeWaiters();
+    return waiter;
+  }
+
+  /**
+   * Removes the waiter of a request that resumed for its own reasons.
+   */
+  void cancel(Runnable waiter) {
+    waiters.remove(waiter);
+  }
+
+  long inFlight() {
+    return inFlight.get();
+  }
+
+  private void resumeWaiters() {
+    Runnable waiter;
+    while ((maxBytes == -1 || inFlight.get() < maxBytes) && (waiter = waiters.poll()) != null) {
+      waiter.run();
+    }
+  }
+}
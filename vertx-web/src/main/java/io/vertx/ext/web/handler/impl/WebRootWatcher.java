@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.handler.impl;
+
+import io.vertx.core.Closeable;
+import io.vertx.core.Promise;
+import io.vertx.core.impl.logging.Logger;
+import io.vertx.core.impl.logging.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a web root on the file system and reports the files that change, so the cached metadata of the files can
+ * live until they change instead of timing out.
+ * <p>
+ * The directories are registered and the watch service is polled by a dedicated daemon thread, never by an event
+ * loop, until the watcher or vertx is closed. The owner is notified once all the directories are registered, only the
+ * changes that happen after that are reported. When the watch service overflows events are lost: the watcher reports it and is no longer
+ * {@link #isReliable() reliable}, the owner must fall back to time based expiration.
+ * <p>
+ * This class is thread-safe
+ */
+final class WebRootWatcher implements Runnable, Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(WebRootWatcher.class);
+
+  private final Path root;
+  private final String webRoot;
+  private final WatchService watchService;
+  // the watched directories
+  private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+  private final Consumer<String> changed;
+  private final Runnable lost;
+  private final Consumer<WebRootWatcher> ready;
+  private final Thread thread;
+  private volatile boolean reliable = true;
+  private volatile boolean closed;
+
+  private WebRootWatcher(Path root, String webRoot, Consumer<String> changed, Runnable lost,
+                         Consumer<WebRootWatcher> ready) throws IOException {
+    this.root = root;
+    this.webRoot = webRoot;
+    this.changed = changed;
+    this.lost = lost;
+    this.ready = ready;
+    this.watchService = root.getFileSystem().newWatchService();
+    this.thread = new Thread(this, "vertx-web-static-watcher");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Starts watching a web root.
+   *
+   * @param webRoot the web root, as used to build the file names
+   * @param changed called with the file name (web root + path) of each file or directory that changed
+   * @param lost called when the changes may have been lost
+   * @param ready called from the watcher thread once the web root is watched, never called if the web root is not a
+   * directory of the file system (e.g.: classpath resources)
+   * @return the watcher or {@code null} if the watch service can't be created
+   */
+  static WebRootWatcher watch(String webRoot, Consumer<String> changed, Runnable lost, Consumer<WebRootWatcher> ready) {
+    try {
+      final WebRootWatcher watcher = new WebRootWatcher(Paths.get(webRoot), webRoot, changed, lost, ready);
+      watcher.thread.start();
+      return watcher;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to watch the web root " + webRoot, e);
+      return null;
+    }
+  }
+
+  /**
+   * @return {@code false} once changes may have been missed.
+   */
+  boolean isReliable() {
+    return reliable && !closed;
+  }
+
+  void close() {
+    closed = true;
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      log.debug("Failed to close the watch service", e);
+    }
+  }
+
+  /**
+   * Closes the watcher when vertx is closed.
+   */
+  @Override
+  public void close(Promise<Void> completion) {
+    close();
+    completion.complete();
+  }
+
+  @Override
+  public void run() {
+    // the whole tree is walked, this is why it isn't done by the caller
+    try {
+      if (!Files.isDirectory(root)) {
+        log.warn("The web root " + webRoot + " is not a directory of the file system and can't be watched");
+        close();
+        return;
+      }
+      register(root);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to watch the web root " + webRoot, e);
+      close();
+      return;
+    }
+    if (!closed) {
+      ready.accept(this);
+    }
+
+    while (!closed) {
+      final WatchKey key;
+      try {
+        key = watchService.take();
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        break;
+      }
+
+      final Path dir = directories.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          overflow();
+          continue;
+        }
+        final Path child = dir == null ? null : dir.resolve((Path) event.context());
+        if (child == null) {
+          continue;
+        }
+        if (event.kind() == ENTRY_DELETE && directories.containsValue(child)) {
+          // the files of a deleted directory are not reported
+          changed.accept(fileName(child));
+          lost.run();
+          continue;
+        }
+        if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+          try {
+            register(child);
+          } catch (IOException e) {
+            log.warn("Failed to watch the directory " + child, e);
+            overflow();
+          }
+        }
+        changed.accept(fileName(child));
+      }
+
+      if (!key.reset()) {
+        // the directory is gone
+        directories.remove(key);
+      }
+    }
+    reliable = false;
+  }
+
+  private void overflow() {
+    log.warn("Changes to the web root " + webRoot + " were lost, falling back to the cache entry timeout");
+    reliable = false;
+    lost.run();
+  }
+
+  /**
+   * @return the file name as built by the static handler: web root + '/' + relative path.
+   */
+  private String fileName(Path path) {
+    final String relative = root.relativize(path).toString();
+    return webRoot + '/' + (File.separatorChar == '/' ? relative : relative.replace(File.separatorChar, '/'));
+  }
+
+  private void register(Path start) throws IOException {
+    Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
@@ -52,9 +52,8 @@ import io.vertx.ext.web.handler.sockjs.SockJSHandlerOptions;
 import io.vertx.ext.web.handler.sockjs.SockJSSocket;
 import io.vertx.ext.web.handler.sockjs.Transport;
 import io.vertx.ext.web.impl.RoutingContextInternal;
+import io.vertx.ext.web.impl.Utils;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Random;
 import java.util.Set;
 
@@ -205,7 +204,7 @@ class BaseTransport {
       rc.response().putHeader(CACHE_CONTROL, "public,max-age=31536000");
       long oneYearSeconds = 365 * 24 * 60 * 60;
       long oneYearms = oneYearSeconds * 1000;
-      String expires = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz").format(new Date(System.currentTimeMillis() + oneYearms));
+      String expires = Utils.formatRFC1123DateTime(System.currentTimeMillis() + oneYearms);
       rc.response()
         .putHeader(EXPIRES, expires)
         .putHeader(ACCESS_CONTROL_ALLOW_METHODS, methods)
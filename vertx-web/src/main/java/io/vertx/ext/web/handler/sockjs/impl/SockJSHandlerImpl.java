@@ -44,12 +44,11 @@ import io.vertx.ext.auth.authorization.AuthorizationProvider;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.sockjs.*;
+import io.vertx.ext.web.impl.Utils;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -227,7 +226,7 @@ public class SockJSHandlerImpl implements SockJSHandler {
           rc.response().end();
         } else {
           long oneYear = 365 * 24 * 60 * 60 * 1000L;
-          String expires = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz").format(new Date(System.currentTimeMillis() + oneYear));
+          String expires = Utils.formatRFC1123DateTime(System.currentTimeMillis() + oneYear);
           rc.response()
             .putHeader(HttpHeaders.CONTENT_TYPE, "text/html; charset=UTF-8")
             .putHeader(HttpHeaders.CACHE_CONTROL, "public,max-age=31536000")
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.impl;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent cache bounded by the total weight of its entries, with an optional time to live per entry.
+ * <p>
+ * Reads and writes don't lock: the entries are kept in a {@link ConcurrentHashMap} and a read only marks the entry
+ * as referenced. When the cache goes over its max weight, the thread that added the entry evicts entries with the
+ * CLOCK algorithm (an approximation of LRU): the oldest entries are evicted unless they were referenced since the
+ * last time the eviction looked at them, in which case they get a second chance. Only one thread evicts at a time,
+ * the others don't wait for it.
+ * <p>
+ * A new key is only admitted in a full cache if it is accessed at least as often as the entry it would evict, the
+ * TinyLFU admission policy: the access frequencies of the keys, including the keys not in the cache, are estimated
+ * by a small count-min sketch that is periodically halved so that old accesses fade. A scan of keys accessed once
+ * doesn't flush the entries accessed frequently.
+ * <p>
+ * This class is thread-safe
+ */
+public final class ConcurrentCache<K, V> {
+
+  private static final class Node<K, V> {
+    final K key;
+    final V value;
+    final long weight;
+    // in ms, 0 when the entry doesn't expire
+    final long expiresAt;
+    volatile boolean referenced;
+    // set once by the thread that removed the node from the map
+    volatile boolean removed;
+
+    Node(K key, V value, long weight, long expiresAt) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired(long now) {
+      return expiresAt != 0 && now >= expiresAt;
+    }
+  }
+
+  /**
+   * The estimated access frequencies of the keys, 4 bits counters in a count-min sketch with 4 hash functions.
+   * <p>
+   * The counters are updated without synchronization, a concurrent update can be lost: the frequencies are estimates
+   * anyway, they only decide which entry is evicted.
+   */
+  private static final class FrequencySketch {
+
+    private static final int MIN_SIZE = 1024;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0x8f1b2c5d, 0x2f0d4b39, 0x6a09e667 };
+
+    private volatile byte[] table = new byte[MIN_SIZE];
+    // the increments since the last halving
+    private int additions;
+
+    void increment(Object key) {
+      final byte[] table = this.table;
+      final int hash = spread(key.hashCode());
+      boolean added = false;
+      for (int seed : SEEDS) {
+        final int i = index(table, hash, seed);
+        if (table[i] < MAX_COUNT) {
+          table[i]++;
+          added = true;
+        }
+      }
+      if (added && ++additions >= 10 * table.length) {
+        halve(table);
+      }
+    }
+
+    int frequency(Object key) {
+      final byte[] table = this.table;
+      final int hash = spread(key.hashCode());
+      int frequency = MAX_COUNT;
+      for (int seed : SEEDS) {
+        frequency = Math.min(frequency, table[index(table, hash, seed)]);
+      }
+      return frequency;
+    }
+
+    /**
+     * Grows the sketch with the cache, the frequencies are reset then.
+     */
+    void ensureCapacity(int size) {
+      final int length = table.length;
+      if (length < (1 << 30) / 8 && size * 8 > length) {
+        int newLength = length;
+        while (newLength < size * 8) {
+          newLength <<= 1;
+        }
+        table = new byte[newLength];
+        additions = 0;
+      }
+    }
+
+    private void halve(byte[] table) {
+      for (int i = 0; i < table.length; i++) {
+        table[i] >>= 1;
+      }
+      additions /= 2;
+    }
+
+    private static int spread(int hash) {
+      hash *= 0x9e3779b9;
+      return hash ^ (hash >>> 16);
+    }
+
+    private static int index(byte[] table, int hash, int seed) {
+      int h = (hash ^ seed) * 0x85ebca6b;
+      h ^= h >>> 13;
+      return h & (table.length - 1);
+    }
+  }
+
+  private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+  // the nodes in insertion order, including the removed nodes that were not polled yet
+  private final Queue<Node<K, V>> queue = new ConcurrentLinkedQueue<>();
+  // the removed nodes still in the queue, it can be briefly off while a removed node is being polled
+  private final AtomicInteger removedInQueue = new AtomicInteger();
+  private final FrequencySketch sketch = new FrequencySketch();
+  private final AtomicLong weight = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final long defaultTimeToLive;
+  private volatile long maxWeight;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maxWeight the max total weight of the entries
+   * @param defaultTimeToLive the time to live of the entries in ms, {@code 0} when the entries don't expire
+   */
+  public ConcurrentCache(long maxWeight, long defaultTimeToLive) {
+    if (maxWeight < 1) {
+      throw new IllegalArgumentException("maxWeight must be >= 1");
+    }
+    if (defaultTimeToLive < 0) {
+      throw new IllegalArgumentException("defaultTimeToLive must be >= 0");
+    }
+    this.maxWeight = maxWeight;
+    this.defaultTimeToLive = defaultTimeToLive;
+  }
+
+  /**
+   * A cache where every entry weights {@code 1}, the max weight is the max number of entries.
+   *
+   * @param maxSize the max number of entries
+   */
+  public ConcurrentCache(int maxSize) {
+    this(maxSize, 0);
+  }
+
+  /**
+   * @return the value or {@code null} when the key is not cached or the entry expired
+   */
+  public V get(K key) {
+    sketch.increment(key);
+    final Node<K, V> node = map.get(key);
+    if (node == null) {
+      misses.increment();
+      return null;
+    }
+    if (node.isExpired(System.currentTimeMillis())) {
+      if (map.remove(key, node)) {
+        removed(node);
+      }
+      misses.increment();
+      return null;
+    }
+    // avoid writing to a shared cache line when it is already set
+    if (!node.referenced) {
+      node.referenced = true;
+    }
+    hits.increment();
+    return node.value;
+  }
+
+  public void put(K key, V value) {
+    put(key, value, 1, defaultTimeToLive);
+  }
+
+  public void put(K key, V value, long weight) {
+    put(key, value, weight, defaultTimeToLive);
+  }
+
+  /**
+   * Puts an entry, evicting other entries when the cache is full. An entry heavier than the max weight is not
+   * cached.
+   *
+   * @param key the key
+   * @param value the value
+   * @param weight the weight of the entry, must be {@code >= 0}
+   * @param timeToLive the time to live of the entry in ms, {@code 0} when the entry doesn't expire
+   */
+  public void put(K key, V value, long weight, long timeToLive) {
+    if (weight < 0) {
+      throw new IllegalArgumentException("weight must be >= 0");
+    }
+    if (weight > maxWeight) {
+      remove(key);
+      return;
+    }
+    sketch.increment(key);
+    final Node<K, V> node = new Node<>(key, value, weight, timeToLive > 0 ? System.currentTimeMillis() + timeToLive : 0);
+    this.weight.addAndGet(weight);
+    final Node<K, V> previous = map.put(key, node);
+    if (previous != null) {
+      removed(previous);
+    }
+    // only once in the map, or the eviction could drop it from the queue
+    queue.offer(node);
+    // a new value for a cached key is always admitted
+    evict(previous == null ? node : null);
+  }
+
+  /**
+   * @return the removed value or {@code null}
+   */
+  public V remove(K key) {
+    final Node<K, V> node = map.remove(key);
+    if (node == null) {
+      return null;
+    }
+    removed(node);
+    return node.value;
+  }
+
+  public void clear() {
+    for (K key : map.keySet()) {
+      remove(key);
+    }
+  }
+
+  public void setMaxWeight(long maxWeight) {
+    if (maxWeight < 1) {
+      throw new IllegalArgumentException("maxWeight must be >= 1");
+    }
+    this.maxWeight = maxWeight;
+    evict(null);
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  public long weight() {
+    return weight.get();
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Accounts a node removed from the map by the calling thread, the node is still in the queue.
+   */
+  private void removed(Node<K, V> node) {
+    // counted before being flagged, so that a node seen removed by the eviction was always counted
+    removedInQueue.incrementAndGet();
+    node.removed = true;
+    weight.addAndGet(-node.weight);
+  }
+
+  /**
+   * @param candidate the node of a new key, subject to admission, or {@code null}
+   */
+  private void evict(Node<K, V> candidate) {
+    while (weight.get() > maxWeight || removedInQueue.get() > map.size() + 64) {
+      if (!evictionLock.tryLock()) {
+        // another thread is evicting, it will check the weight again after releasing the lock
+        return;
+      }
+      try {
+        if (removedInQueue.get() > map.size() + 64) {
+          // many entries were removed or replaced, don't keep their nodes until they are polled
+          int polled = 0;
+          for (Iterator<Node<K, V>> it = queue.iterator(); it.hasNext(); ) {
+            if (it.next().removed) {
+              it.remove();
+              polled++;
+            }
+          }
+          removedInQueue.addAndGet(-polled);
+        }
+        if (!evictUnderLock(candidate)) {
+          return;
+        }
+        candidate = null;
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * @return {@code false} when nothing could be evicted
+   */
+  private boolean evictUnderLock(Node<K, V> candidate) {
+    sketch.ensureCapacity(map.size());
+    final long now = System.currentTimeMillis();
+    // every live node gets at most one second chance
+    int chances = map.size();
+    while (weight.get() > maxWeight) {
+      final Node<K, V> node = queue.poll();
+      if (node == null) {
+        return false;
+      }
+      if (node.removed) {
+        // removed by another thread, that counted it as still in the queue
+        removedInQueue.decrementAndGet();
+        continue;
+      }
+      if (node.referenced && chances-- > 0 && !node.isExpired(now)) {
+        node.referenced = false;
+        queue.offer(node);
+        continue;
+      }
+      if (candidate != null && node != candidate && !node.isExpired(now) && !candidate.removed
+        && sketch.frequency(candidate.key) < sketch.frequency(node.key)) {
+        // the victim is accessed more often than the new key: the new key is the one evicted
+        queue.offer(node);
+        if (map.remove(candidate.key, candidate)) {
+          removed(candidate);
+          evictions.increment();
+        }
+        candidate = null;
+        continue;
+      }
+      if (map.remove(node.key, node)) {
+        // polled, so not counted as a removed node in the queue
+        node.removed = true;
+        weight.addAndGet(-node.weight);
+        evictions.increment();
+      } else {
+        // removed by another thread in the meantime, that counted it as still in the queue
+        removedInQueue.decrementAndGet();
+      }
+    }
+    return true;
+  }
+}
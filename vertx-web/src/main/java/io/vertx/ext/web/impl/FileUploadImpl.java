@@ -16,6 +16,7 @@
 
 package io.vertx.ext.web.impl;
 
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpServerFileUpload;
 import io.vertx.ext.web.FileUpload;
 
@@ -24,8 +25,9 @@ import io.vertx.ext.web.FileUpload;
  */
 public class FileUploadImpl implements FileUpload {
 
-  private final String uploadedFileName;
   private final HttpServerFileUpload upload;
+  private volatile String uploadedFileName;
+  private volatile Buffer content;
 
   public FileUploadImpl(String uploadedFileName, HttpServerFileUpload upload) {
     this.uploadedFileName = uploadedFileName;
@@ -42,6 +44,22 @@ public class FileUploadImpl implements FileUpload {
     return uploadedFileName;
   }
 
+  /**
+   * Set the file the upload is written to, an upload kept in memory is written to a file once it is too large.
+   */
+  public void setUploadedFileName(String uploadedFileName) {
+    this.uploadedFileName = uploadedFileName;
+  }
+
+  @Override
+  public Buffer content() {
+    return content;
+  }
+
+  public void setContent(Buffer content) {
+    this.content = content;
+  }
+
   @Override
   public String fileName() {
     return upload.filename();
@@ -27,6 +27,10 @@ class HttpServerRequestWrapper implements HttpServerRequest {
   private String query;
   private String uri;
   private String absoluteURI;
+  // notified before the params are read
+  private Handler<Void> paramsHandler;
+  // the params with the form attributes merged, once the body is handled
+  private MergedParams mergedParams;
 
   HttpServerRequestWrapper(HttpServerRequest request, AllowForwardHeaders allowForward) {
     delegate = request;
@@ -168,14 +172,30 @@ class HttpServerRequestWrapper implements HttpServerRequest {
     return delegate.getHeader(charSequence);
   }
 
+  void paramsHandler(Handler<Void> handler) {
+    this.paramsHandler = handler;
+  }
+
+  void mergeFormAttributes() {
+    // on reroute the form attributes are merged again in the cleared params
+    final MultiMap params = mergedParams != null ? mergedParams.params() : delegate.params();
+    mergedParams = new MergedParams(params, delegate.formAttributes());
+  }
+
   @Override
   public MultiMap params() {
-    return delegate.params();
+    if (paramsHandler != null) {
+      paramsHandler.handle(null);
+    }
+    return mergedParams != null ? mergedParams : delegate.params();
   }
 
   @Override
   public String getParam(String s) {
-    return delegate.getParam(s);
+    if (paramsHandler != null) {
+      paramsHandler.handle(null);
+    }
+    return mergedParams != null ? mergedParams.get(s) : delegate.getParam(s);
   }
 
   @Override
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.impl;
+
+import io.vertx.core.MultiMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The request params with the form attributes merged, as a view over both maps: the form attributes are not copied
+ * in the params, the values of the params come first.
+ * <p>
+ * Adding values adds them to the params, any other mutation first materializes the view, copying both maps in a new
+ * one that replaces the view from then on.
+ */
+final class MergedParams implements MultiMap {
+
+  private MultiMap params;
+  // null once materialized
+  private MultiMap form;
+
+  MergedParams(MultiMap params, MultiMap form) {
+    this.params = params;
+    this.form = form;
+  }
+
+  /**
+   * @return the params without the form attributes, or the materialized map
+   */
+  MultiMap params() {
+    return params;
+  }
+
+  private boolean merged() {
+    return form != null && !form.isEmpty();
+  }
+
+  private void materialize() {
+    if (form != null) {
+      final MultiMap copy = MultiMap.caseInsensitiveMultiMap();
+      copy.addAll(params);
+      copy.addAll(form);
+      params = copy;
+      form = null;
+    }
+  }
+
+  @Override
+  public String get(CharSequence name) {
+    return get(name.toString());
+  }
+
+  @Override
+  public String get(String name) {
+    final String value = params.get(name);
+    if (value == null && form != null) {
+      return form.get(name);
+    }
+    return value;
+  }
+
+  @Override
+  public List<String> getAll(String name) {
+    if (!merged()) {
+      return params.getAll(name);
+    }
+    final List<String> values = params.getAll(name);
+    final List<String> formValues = form.getAll(name);
+    if (formValues.isEmpty()) {
+      return values;
+    }
+    if (values.isEmpty()) {
+      return formValues;
+    }
+    final List<String> all = new ArrayList<>(values.size() + formValues.size());
+    all.addAll(values);
+    all.addAll(formValues);
+    return all;
+  }
+
+  @Override
+  public List<String> getAll(CharSequence name) {
+    return getAll(name.toString());
+  }
+
+  @Override
+  public List<Map.Entry<String, String>> entries() {
+    if (!merged()) {
+      return params.entries();
+    }
+    final List<Map.Entry<String, String>> entries = new ArrayList<>(params.entries());
+    entries.addAll(form.entries());
+    return entries;
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return params.contains(name) || (form != null && form.contains(name));
+  }
+
+  @Override
+  public boolean contains(CharSequence name) {
+    return contains(name.toString());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return params.isEmpty() && !merged();
+  }
+
+  @Override
+  public Set<String> names() {
+    if (!merged()) {
+      return params.names();
+    }
+    final Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    names.addAll(params.names());
+    names.addAll(form.names());
+    return Collections.unmodifiableSet(names);
+  }
+
+  @Override
+  public MultiMap add(String name, String value) {
+    params.add(name, value);
+    return this;
+  }
+
+  @Override
+  public MultiMap add(CharSequence name, CharSequence value) {
+    params.add(name, value);
+    return this;
+  }
+
+  @Override
+  public MultiMap add(String name, Iterable<String> values) {
+    params.add(name, values);
+    return this;
+  }
+
+  @Override
+  public MultiMap add(CharSequence name, Iterable<CharSequence> values) {
+    params.add(name, values);
+    return this;
+  }
+
+  @Override
+  public MultiMap addAll(MultiMap map) {
+    params.addAll(map);
+    return this;
+  }
+
+  @Override
+  public MultiMap addAll(Map<String, String> map) {
+    params.addAll(map);
+    return this;
+  }
+
+  @Override
+  public MultiMap set(String name, String value) {
+    materialize();
+    params.set(name, value);
+    return this;
+  }
+
+  @Override
+  public MultiMap set(CharSequence name, CharSequence value) {
+    materialize();
+    params.set(name, value);
+    return this;
+  }
+
+  @Override
+  public MultiMap set(String name, Iterable<String> values) {
+    materialize();
+    params.set(name, values);
+    return this;
+  }
+
+  @Override
+  public MultiMap set(CharSequence name, Iterable<CharSequence> values) {
+    materialize();
+    params.set(name, values);
+    return this;
+  }
+
+  @Override
+  public MultiMap setAll(MultiMap map) {
+    materialize();
+    params.setAll(map);
+    return this;
+  }
+
+  @Override
+  public MultiMap setAll(Map<String, String> map) {
+    materialize();
+    params.setAll(map);
+    return this;
+  }
+
+  @Override
+  public MultiMap remove(String name) {
+    materialize();
+    params.remove(name);
+    return this;
+  }
+
+  @Override
+  public MultiMap remove(CharSequence name) {
+    materialize();
+    params.remove(name);
+    return this;
+  }
+
+  @Override
+  public MultiMap clear() {
+    // nothing to copy
+    params.clear();
+    form = null;
+    return this;
+  }
+
+  @Override
+  public int size() {
+    return merged() ? names().size() : params.size();
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, String>> iterator() {
+    if (!merged()) {
+      return params.iterator();
+    }
+    final Iterator<Map.Entry<String, String>> first = params.iterator();
+    final Iterator<Map.Entry<String, String>> second = form.iterator();
+    return new Iterator<Map.Entry<String, String>>() {
+      @Override
+      public boolean hasNext() {
+        return first.hasNext() || second.hasNext();
+      }
+
+      @Override
+      public Map.Entry<String, String> next() {
+        if (first.hasNext()) {
+          return first.next();
+        }
+        if (second.hasNext()) {
+          return second.next();
+        }
+        throw new NoSuchElementException();
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, String> entry : this) {
+      sb.append(entry).append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded cache of the content negotiation results of a route, keyed by the raw value of the negotiated header.
+ * <p>
+ * The result of the negotiation only depends on the header value and on the media types of the route, which are
+ * immutable for a given {@link RouteState}, so each state has its own cache. Clients only send a handful of distinct
+ * values, once the cache is full new values are negotiated without being cached.
+ * <p>
+ * This class is thread-safe
+ */
+final class NegotiationCache<T> {
+
+  static final int MAX_SIZE = 128;
+
+  private final ConcurrentMap<String, T> results = new ConcurrentHashMap<>();
+
+  /**
+   * @return the cached result for the header value or {@code null}.
+   */
+  T get(String header) {
+    return results.get(header);
+  }
+
+  /**
+   * Caches the result for the header value when the cache is not full.
+   *
+   * @return the result
+   */
+  T put(String header, T result) {
+    if (results.size() < MAX_SIZE) {
+      results.putIfAbsent(header, result);
+    }
+    return result;
+  }
+}
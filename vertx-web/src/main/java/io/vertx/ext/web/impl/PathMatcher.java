@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A matcher for parameterized paths where every parameter is a full path segment, e.g.: {@code /users/:id/*}.
+ * <p>
+ * It is equivalent to the regular expression generated by {@link RouteImpl#toRegex(String, List)} for the same path
+ * but it does not allocate: a match only records the start and end offsets of the parameters in the request path.
+ * <p>
+ * This class is thread-safe
+ */
+final class PathMatcher {
+
+  // Pattern for :<token name> in path
+  private static final Pattern RE_TOKEN_SEARCH = Pattern.compile(":([A-Za-z][A-Za-z0-9_]*)");
+
+  // literals[i] is the text before the parameter i, the last element is the text after the last parameter
+  private final String[] literals;
+  private final boolean exact;
+
+  private PathMatcher(String[] literals, boolean exact) {
+    this.literals = literals;
+    this.exact = exact;
+  }
+
+  /**
+   * Compiles a parameterized path.
+   *
+   * @param path the path as given by the user (including the optional trailing {@code *})
+   * @return the matcher or {@code null} when the path is not made of full segment parameters and literals.
+   */
+  static PathMatcher compile(String path) {
+    final boolean exact = path.charAt(path.length() - 1) != '*';
+    if (!exact) {
+      path = path.substring(0, path.length() - 1);
+    }
+
+    final List<String> literals = new ArrayList<>();
+    final Matcher m = RE_TOKEN_SEARCH.matcher(path);
+    int last = 0;
+    while (m.find()) {
+      String literal = path.substring(last, m.start());
+      // the parameter must start a segment
+      if (!literal.endsWith("/") || !isRegexSafe(literal)) {
+        return null;
+      }
+      // and end it
+      if (m.end() < path.length() && path.charAt(m.end()) != '/') {
+        return null;
+      }
+      literals.add(literal);
+      last = m.end();
+    }
+    String literal = path.substring(last);
+    if (!isRegexSafe(literal)) {
+      return null;
+    }
+    literals.add(literal);
+
+    return new PathMatcher(literals.toArray(new String[0]), exact);
+  }
+
+  /**
+   * @return the number of parameters in the path.
+   */
+  int params() {
+    return literals.length - 1;
+  }
+
+  /**
+   * Matches the given path starting at the given offset.
+   *
+   * @param path the request path
+   * @param from the offset where to start matching (the length of the mount point)
+   * @return {@code null} if the path doesn't match, otherwise an array with the start and end offsets of each
+   * parameter followed by the offset of the rest of the path when the matcher isn't exact.
+   */
+  int[] match(String path, int from) {
+    final int params = literals.length - 1;
+    final int[] offsets = new int[2 * params + 1];
+    final int len = path.length();
+
+    int pos = from;
+    for (int i = 0; i < params; i++) {
+      final String literal = literals[i];
+      if (!path.startsWith(literal, pos)) {
+        return null;
+      }
+      pos += literal.length();
+      final int start = pos;
+      while (pos < len && path.charAt(pos) != '/') {
+        pos++;
+      }
+      // parameters can't be empty
+      if (pos == start) {
+        return null;
+      }
+      offsets[2 * i] = start;
+      offsets[2 * i + 1] = pos;
+    }
+
+    final String literal = literals[params];
+    if (!path.startsWith(literal, pos)) {
+      return null;
+    }
+    pos += literal.length();
+
+    if (exact) {
+      if (pos != len) {
+        return null;
+      }
+    } else {
+      // the rest is matched by ".*" which does not match line terminators
+      for (int i = pos; i < len; i++) {
+        switch (path.charAt(i)) {
+          case '\n':
+          case '\r':
+          case '\u0085':
+          case '\u2028':
+          case '\u2029':
+            return null;
+        }
+      }
+    }
+    offsets[2 * params] = pos;
+    return offsets;
+  }
+
+  /**
+   * Checks that a literal part of a parameterized path is compiled to a literal regular expression.
+   * {@link RouteImpl} only escapes {@code ( ) $ + .} when compiling parameterized paths.
+   */
+  static boolean isRegexSafe(String literal) {
+    for (int i = 0; i < literal.length(); i++) {
+      switch (literal.charAt(i)) {
+        case '\\':
+        case '[':
+        case ']':
+        case '{':
+        case '}':
+        case '?':
+        case '*':
+        case '|':
+        case '^':
+          return false;
+      }
+    }
+    return true;
+  }
+}
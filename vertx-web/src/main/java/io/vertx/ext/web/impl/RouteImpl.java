@@ -38,6 +38,8 @@ public class RouteImpl implements Route {
 
   private final RouterImpl router;
   private volatile RouteState state;
+  // the sub router mounted by this route when its routes are merged in the routes of the router
+  private volatile RouterImpl flattened;
 
   RouteImpl(RouterImpl router, int order) {
     this.router = router;
@@ -72,9 +74,14 @@ public class RouteImpl implements Route {
     return state;
   }
 
+  RouterImpl flattened() {
+    return flattened;
+  }
+
   @Override
   public synchronized Route method(HttpMethod method) {
     state = state.addMethod(method);
+    checkReindex();
     return this;
   }
 
@@ -82,12 +89,14 @@ public class RouteImpl implements Route {
   public Route path(String path) {
     checkPath(path);
     setPath(path);
+    checkReindex();
     return this;
   }
 
   @Override
   public Route pathRegex(String regex) {
     setRegex(regex);
+    checkReindex();
     return this;
   }
 
@@ -111,7 +120,7 @@ public class RouteImpl implements Route {
           hostnamePattern
             .replaceAll("\\.", "\\\\.")
             .replaceAll("[*]", "(.*?)"), Pattern.CASE_INSENSITIVE));
-
+    checkReindex();
     return this;
   }
 
@@ -211,6 +220,7 @@ public class RouteImpl implements Route {
   @Override
   public synchronized Route useNormalizedPath(boolean useNormalizedPath) {
     state = state.setUseNormalizedPath(useNormalizedPath);
+    checkReindex();
     return this;
   }
 
@@ -267,6 +277,7 @@ public class RouteImpl implements Route {
 
   private synchronized void setRegex(String regex) {
     state = state.setPattern(Pattern.compile(regex));
+    state = state.setPathMatcher(null);
     state = state.setExactPath(true);
     findNamedGroups(state.getPattern().pattern());
   }
@@ -285,20 +296,36 @@ public class RouteImpl implements Route {
   private static final Pattern RE_TOKEN_SEARCH = Pattern.compile(":([A-Za-z][A-Za-z0-9_]*)");
 
   private synchronized void createPatternRegex(String path) {
+    // allow usage of * at the end as per documentation
+    state = state.setExactPath(path.charAt(path.length() - 1) != '*');
+
+    List<String> groups = new ArrayList<>();
+    String regex = toRegex(path, groups);
+
+    state = state.setGroups(groups);
+    state = state.setPattern(Pattern.compile(regex));
+    // simple paths can be matched without the regex
+    state = state.setPathMatcher(PathMatcher.compile(path));
+  }
+
+  /**
+   * Converts a parameterized path into the equivalent regular expression.
+   *
+   * @param path the path as given by the user (including the optional trailing {@code *})
+   * @param groups the list to collect the parameter names in order
+   * @return the regular expression
+   */
+  static String toRegex(String path, List<String> groups) {
     // escape path from any regex special chars
     path = RE_OPERATORS_NO_STAR.matcher(path).replaceAll("\\\\$1");
     // allow usage of * at the end as per documentation
     if (path.charAt(path.length() - 1) == '*') {
       path = path.substring(0, path.length() - 1) + "(?<rest>.*)";
-      state = state.setExactPath(false);
-    } else {
-      state = state.setExactPath(true);
     }
 
     // We need to search for any :<token name> tokens in the String and replace them with named capture groups
     Matcher m = RE_TOKEN_SEARCH.matcher(path);
     StringBuffer sb = new StringBuffer();
-    List<String> groups = new ArrayList<>();
     int index = 0;
     while (m.find()) {
       String param = "p" + index;
@@ -311,10 +338,7 @@ public class RouteImpl implements Route {
       index++;
     }
     m.appendTail(sb);
-    path = sb.toString();
-
-    state = state.setGroups(groups);
-    state = state.setPattern(Pattern.compile(path));
+    return sb.toString();
   }
 
   private void checkPath(String path) {
@@ -334,6 +358,25 @@ public class RouteImpl implements Route {
     }
   }
 
+  /**
+   * Merges the routes of the sub router mounted by this route in the routes of the router, see {@link RouteIndex}.
+   */
+  synchronized RouteImpl flatten(RouterImpl subRouter) {
+    if (!state.isExclusive()) {
+      throw new IllegalStateException("Only a route mounting a sub router can be flattened.");
+    }
+    flattened = subRouter;
+    checkReindex();
+    return this;
+  }
+
+  private void checkReindex() {
+    // the router index is computed from the route state when it is added
+    if (state.isAdded()) {
+      router.reindex();
+    }
+  }
+
   public synchronized RouteImpl setEmptyBodyPermittedWithConsumes(boolean emptyBodyPermittedWithConsumes) {
     state = state.setEmptyBodyPermittedWithConsumes(emptyBodyPermittedWithConsumes);
     return this;
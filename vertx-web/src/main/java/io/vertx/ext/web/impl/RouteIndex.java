@@ -0,0 +1,576 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.impl;
+
+import io.vertx.core.http.HttpMethod;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable radix tree over the path segments of the routes of a router. The tree is keyed by literal segments
+ * and {@code :param} captures, a lookup walks the request path once and returns the set of routes (by declaration
+ * position) that could match it.
+ * <p>
+ * The index is conservative: it can only discard routes that can never match the given path. Routes that cannot be
+ * indexed (regular expressions, paths that are not normalized, routes without a path) are always returned and the
+ * final decision is still taken by {@link RouteState#matches(RoutingContextImplBase, String, boolean)}, so the
+ * declaration order and matching semantics are kept.
+ * <p>
+ * Routes are also partitioned by HTTP method, so routes that can't handle the request method are only evaluated
+ * when the routing failed, to tell apart a {@code 404} from a {@code 405}. Routes with a virtual host that is a
+ * plain host name are partitioned by host, routes for other hosts are never evaluated.
+ * <p>
+ * The routes of flattened sub routers (see {@link RouteImpl#flatten(RouterImpl)}) are merged in the index: the route
+ * mounting the sub router is kept as an entry that is only matched (it has no handler to call), it is followed by
+ * the routes of the sub router, prefixed by the mount point. When the mount route doesn't match, all the routes of
+ * the sub router are skipped, as a nested routing context would do. The index becomes stale when a flattened sub
+ * router or a mount route changes.
+ * <p>
+ * This class is thread-safe
+ */
+final class RouteIndex {
+
+  static final RouteIndex EMPTY = new RouteIndex(Collections.emptySet(), null);
+
+  // Pattern for a segment that is only a :<token name>
+  private static final Pattern RE_PARAM_SEGMENT = Pattern.compile(":[A-Za-z][A-Za-z0-9_]*");
+
+  private static final class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private Node param;
+    // routes that end exactly at this node
+    private final BitSet exact = new BitSet();
+    // routes that match anything below this node
+    private final BitSet prefix = new BitSet();
+
+    Node child(String segment) {
+      return children.computeIfAbsent(segment, k -> new Node());
+    }
+
+    Node param() {
+      if (param == null) {
+        param = new Node();
+      }
+      return param;
+    }
+  }
+
+  private final RouteImpl[] routes;
+  // the mount point of the routes of flattened sub routers, relative to the router of this index
+  private final String[] mountPoints;
+  // the path of the routes of flattened sub routers prefixed by their mount point, when known ahead
+  private final String[] mountedPaths;
+  private final BitSet mountedPathsEndWithSlash = new BitSet();
+  // the position of the last route of a flattened sub router, for the routes mounting them, otherwise -1
+  private final int[] mountEnds;
+  // the routes of flattened sub routers
+  private final BitSet nested = new BitSet();
+  // what the flattened sub routers were built from, the index is stale when it changes
+  private final RouteImpl[] mounts;
+  private final RouteState[] mountStates;
+  private final RouterImpl[] subRouters;
+  private final RouterState[] subRouterStates;
+  private final Node root = new Node();
+  // routes that can't be indexed and must always be evaluated
+  private final BitSet always = new BitSet();
+  // routes that accept any method
+  private final BitSet anyMethod = new BitSet();
+  // routes that accept a given method (including the routes that accept any method)
+  private final Map<HttpMethod, BitSet> methods = new HashMap<>();
+  // routes for any host, including the routes with a virtual host pattern that is not a plain host name
+  private final BitSet anyHost = new BitSet();
+  // routes for a given host name (including the routes for any host)
+  private final Map<String, BitSet> hosts = new HashMap<>();
+  // the metrics of the router of this index and the counters of each route, null when metrics are disabled
+  private final RouterMetricsImpl metrics;
+  private final RouterMetricsImpl.RouteCounters[] counters;
+
+  private static final class Entry {
+    private final RouteImpl route;
+    private final RouteState state;
+    // the mount point of the sub router the route belongs to, null for the routes of the router of the index
+    private final String mountPoint;
+    // the position of the route mounting the sub router
+    private final int mount;
+    private int mountEnd = -1;
+
+    private Entry(RouteImpl route, RouteState state, String mountPoint, int mount) {
+      this.route = route;
+      this.state = state;
+      this.mountPoint = mountPoint;
+      this.mount = mount;
+    }
+  }
+
+  RouteIndex(Set<RouteImpl> routes, RouterMetricsImpl metrics) {
+    final List<Entry> entries = new ArrayList<>(routes.size());
+    final List<RouteImpl> mounts = new ArrayList<>();
+    final List<RouterImpl> subRouters = new ArrayList<>();
+    flatten(routes, null, -1, entries, mounts, subRouters, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    final int size = entries.size();
+    this.routes = new RouteImpl[size];
+    this.mountPoints = new String[size];
+    this.mountedPaths = new String[size];
+    this.mountEnds = new int[size];
+    this.metrics = metrics;
+    this.counters = metrics == null ? null : new RouterMetricsImpl.RouteCounters[size];
+    // the node where the route mounting a sub router was indexed
+    final Node[] mountNodes = new Node[size];
+
+    for (int i = 0; i < size; i++) {
+      final Entry entry = entries.get(i);
+      final RouteState state = entry.state;
+      this.routes[i] = entry.route;
+      this.mountEnds[i] = entry.mountEnd;
+      if (metrics != null) {
+        counters[i] = metrics.counters(entry.route);
+      }
+
+      if (entry.mountPoint == null) {
+        mountNodes[i] = add(i, state, null, null);
+      } else {
+        nested.set(i);
+        mountPoints[i] = entry.mountPoint;
+        if (state.getPath() != null && state.getPattern() == null) {
+          mountedPaths[i] = state.mountedPath(entry.mountPoint);
+          mountedPathsEndWithSlash.set(i, state.mountedPathEndsWithSlash(entry.mountPoint));
+        }
+        mountNodes[i] = add(i, state, entry.mountPoint, mountNodes[entry.mount]);
+      }
+
+      final Set<HttpMethod> routeMethods = state.getMethods();
+      if (routeMethods == null || routeMethods.isEmpty()) {
+        anyMethod.set(i);
+      } else {
+        for (HttpMethod method : routeMethods) {
+          methods.computeIfAbsent(method, k -> new BitSet()).set(i);
+        }
+      }
+
+      final String virtualHost = state.getVirtualHost();
+      if (virtualHost == null) {
+        anyHost.set(i);
+      } else {
+        hosts.computeIfAbsent(virtualHost, k -> new BitSet()).set(i);
+      }
+    }
+
+    for (BitSet byMethod : methods.values()) {
+      byMethod.or(anyMethod);
+    }
+    for (BitSet byHost : hosts.values()) {
+      byHost.or(anyHost);
+    }
+
+    this.mounts = mounts.toArray(new RouteImpl[0]);
+    this.mountStates = new RouteState[this.mounts.length];
+    for (int i = 0; i < this.mounts.length; i++) {
+      mountStates[i] = this.mounts[i].state();
+    }
+    this.subRouters = subRouters.toArray(new RouterImpl[0]);
+    this.subRouterStates = new RouterState[this.subRouters.length];
+    for (int i = 0; i < this.subRouters.length; i++) {
+      subRouterStates[i] = this.subRouters[i].state();
+    }
+  }
+
+  /**
+   * Adds the routes to the entries, the routes of flattened sub routers are added after the route mounting them.
+   */
+  private static void flatten(Collection<RouteImpl> routes, String mountPoint, int mount, List<Entry> entries, List<RouteImpl> mounts, List<RouterImpl> subRouters, Set<RouterImpl> visiting) {
+    for (RouteImpl route : routes) {
+      final RouteState state = route.state();
+      final Entry entry = new Entry(route, state, mountPoint, mount);
+      final int position = entries.size();
+      entries.add(entry);
+
+      final RouterImpl subRouter = route.flattened();
+      if (subRouter != null) {
+        // the index must be rebuilt when the mount changes, even if it can't be flattened now
+        mounts.add(route);
+        if (isFlattenable(state) && visiting.add(subRouter)) {
+          subRouters.add(subRouter);
+          flatten(subRouter.state().getRoutes(), mountPoint(mountPoint, state.getPath()), position, entries, mounts, subRouters, visiting);
+          visiting.remove(subRouter);
+          entry.mountEnd = entries.size() - 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * A sub router can be flattened when the route mounting it only matches a constant path.
+   */
+  private static boolean isFlattenable(RouteState state) {
+    return
+      state.getPath() != null &&
+      state.getPattern() == null &&
+      !state.isExactPath() &&
+      state.isUseNormalizedPath() &&
+      (state.getMethods() == null || state.getMethods().isEmpty()) &&
+      (state.getConsumes() == null || state.getConsumes().isEmpty()) &&
+      (state.getProduces() == null || state.getProduces().isEmpty()) &&
+      state.getVirtualHostPattern() == null &&
+      state.getContextHandlersLength() == 1 &&
+      state.getFailureHandlersLength() == 1;
+  }
+
+  /**
+   * Computes the mount point of a sub router the same way {@link RoutingContextWrapper} does.
+   */
+  static String mountPoint(String parentMountPoint, String mountPoint) {
+    if (parentMountPoint == null) {
+      return mountPoint;
+    }
+    if (parentMountPoint.charAt(parentMountPoint.length() - 1) == '/') {
+      // Remove the trailing slash or we won't match
+      return parentMountPoint.substring(0, parentMountPoint.length() - 1) + mountPoint;
+    }
+    return parentMountPoint + mountPoint;
+  }
+
+  /**
+   * @return {@code true} when a flattened sub router changed after the index was built.
+   */
+  boolean isStale() {
+    for (int i = 0; i < mounts.length; i++) {
+      if (mounts[i].state() != mountStates[i]) {
+        return true;
+      }
+    }
+    for (int i = 0; i < subRouters.length; i++) {
+      if (subRouters[i].state() != subRouterStates[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return {@code true} if the route at the given position belongs to a flattened sub router.
+   */
+  boolean isNested(int position) {
+    return nested.get(position);
+  }
+
+  /**
+   * @return the position of the last route of the sub router mounted by the route at the given position or
+   * {@code -1} if the route doesn't mount a flattened sub router.
+   */
+  int mountEnd(int position) {
+    return mountEnds[position];
+  }
+
+  /**
+   * @param position the position of the route
+   * @param routerMountPoint the mount point of the router of this index
+   * @return the mount point the route at the given position must be matched with.
+   */
+  String mountPoint(int position, String routerMountPoint) {
+    final String mountPoint = mountPoints[position];
+    if (mountPoint == null) {
+      return routerMountPoint;
+    }
+    return routerMountPoint == null ? mountPoint : mountPoint(routerMountPoint, mountPoint);
+  }
+
+  /**
+   * Matches the route at the given position.
+   *
+   * @see RouteState#matches(RoutingContextImplBase, String, boolean)
+   */
+  int matches(int position, RoutingContextImplBase context, String routerMountPoint, boolean failure) {
+    final RouteState state = routes[position].state();
+    if (routerMountPoint == null && mountedPaths[position] != null) {
+      // the path of the route prefixed by its mount point was computed when indexing
+      return state.matches(context, mountPoints[position], mountedPaths[position], mountedPathsEndWithSlash.get(position), failure);
+    }
+    return state.matches(context, mountPoint(position, routerMountPoint), failure);
+  }
+
+  /**
+   * The returned bit set is shared and must not be modified.
+   *
+   * @return a bit set with the routes of flattened sub routers.
+   */
+  BitSet nested() {
+    return nested;
+  }
+
+  /**
+   * @return the metrics of the router of this index or {@code null} when they are disabled.
+   */
+  RouterMetricsImpl metrics() {
+    return metrics;
+  }
+
+  /**
+   * @return the counters of the route at the given position, only when metrics are enabled.
+   */
+  RouterMetricsImpl.RouteCounters counters(int position) {
+    return counters[position];
+  }
+
+  /**
+   * @return the number of routes in this index.
+   */
+  int size() {
+    return routes.length;
+  }
+
+  /**
+   * @return the route at the given declaration position.
+   */
+  RouteImpl get(int position) {
+    return routes[position];
+  }
+
+  /**
+   * @return a bit set with all the routes of this index.
+   */
+  BitSet all() {
+    BitSet all = new BitSet(routes.length);
+    all.set(0, routes.length);
+    return all;
+  }
+
+  /**
+   * The returned bit set is shared and must not be modified.
+   *
+   * @return a bit set with the routes that accept the given method.
+   */
+  BitSet methods(HttpMethod method) {
+    return methods.getOrDefault(method, anyMethod);
+  }
+
+  /**
+   * The returned bit set can be shared and must not be modified.
+   *
+   * @param host the host of the request
+   * @return a bit set with the routes that can match the host of the request or {@code null} if all routes can.
+   */
+  BitSet hosts(String host) {
+    if (hosts.isEmpty()) {
+      return null;
+    }
+    if (host == null) {
+      return anyHost;
+    }
+    int colon = host.indexOf(':');
+    if (colon == -1) {
+      return hosts.getOrDefault(host.toLowerCase(Locale.ROOT), anyHost);
+    }
+    // any part of host:port can match
+    BitSet result = null;
+    boolean shared = true;
+    int start = 0;
+    while (start <= host.length()) {
+      int end = host.indexOf(':', start);
+      if (end == -1) {
+        end = host.length();
+      }
+      BitSet byHost = hosts.get(host.substring(start, end).toLowerCase(Locale.ROOT));
+      if (byHost != null) {
+        if (result == null) {
+          result = byHost;
+        } else {
+          if (shared) {
+            result = (BitSet) result.clone();
+            shared = false;
+          }
+          result.or(byHost);
+        }
+      }
+      start = end + 1;
+    }
+    return result == null ? anyHost : result;
+  }
+
+  /**
+   * Computes the routes that could match the normalized path of the given context.
+   *
+   * @param context the routing context
+   * @param mountPoint the mount point of the router owning this index, or {@code null} for a root router
+   * @return a bit set with the positions of the candidate routes or {@code null} if the path can't be looked up, in
+   * which case all routes must be evaluated
+   */
+  BitSet lookup(RoutingContextImplBase context, String mountPoint) {
+    String path = context.request().path();
+    if (path == null || path.length() == 0 || path.charAt(0) != '/') {
+      // invalid paths are handled by the route matching algorithm
+      return null;
+    }
+
+    try {
+      path = context.normalizedPath();
+    } catch (RuntimeException e) {
+      // let the route matching algorithm report the failure
+      return null;
+    }
+
+    if (mountPoint != null) {
+      int strip = mountPoint.length();
+      // mount point can have significant slash
+      if (mountPoint.charAt(strip - 1) == '/') {
+        strip--;
+      }
+      if (!path.regionMatches(0, mountPoint, 0, strip)) {
+        return null;
+      }
+      path = path.substring(strip);
+    }
+
+    if (path.length() > 0 && path.charAt(0) != '/') {
+      // not a valid path for the index, the route matching algorithm will handle it
+      return null;
+    }
+
+    BitSet candidates = (BitSet) always.clone();
+    collect(root, path, 1, candidates);
+    return candidates;
+  }
+
+  private void collect(Node node, String path, int start, BitSet candidates) {
+    candidates.or(node.prefix);
+    if (start >= path.length()) {
+      // the whole path has been consumed (a trailing slash is not a segment)
+      candidates.or(node.exact);
+      return;
+    }
+
+    int end = path.indexOf('/', start);
+    if (end == -1) {
+      end = path.length();
+    }
+
+    if (!node.children.isEmpty()) {
+      Node child = node.children.get(path.substring(start, end));
+      if (child != null) {
+        collect(child, path, end + 1, candidates);
+      }
+    }
+    // parameters never match an empty segment
+    if (node.param != null && end > start) {
+      collect(node.param, path, end + 1, candidates);
+    }
+  }
+
+  /**
+   * Indexes a route.
+   *
+   * @param position the position of the route
+   * @param state the route state
+   * @param mountPoint the mount point of the flattened sub router of the route or {@code null}
+   * @param mountNode the node where the route mounting the sub router was indexed
+   * @return the node where the route was indexed, {@code null} if it is always evaluated
+   */
+  private Node add(int position, RouteState state, String mountPoint, Node mountNode) {
+    final String path = state.getPath();
+
+    if (path == null || !state.isUseNormalizedPath()) {
+      // regex routes, routes without a path or routes matching the raw path
+      return addAlways(position, mountNode);
+    }
+
+    final boolean param = state.getPattern() != null;
+    final boolean exact = state.isExactPath();
+
+    if (param && !isPathPattern(state)) {
+      // the path was replaced by a regular expression
+      return addAlways(position, mountNode);
+    }
+
+    Node node = root;
+
+    if (mountPoint != null) {
+      if (path.length() == 1 && !exact) {
+        // the route matches anything the mount point matches
+        return addAlways(position, mountNode);
+      }
+      // the mount point is a constant path, no need to check the segments
+      final int end = mountPoint.charAt(mountPoint.length() - 1) == '/' ? mountPoint.length() - 1 : mountPoint.length();
+      int start = 1;
+      while (start < end) {
+        int next = mountPoint.indexOf('/', start);
+        if (next == -1 || next > end) {
+          next = end;
+        }
+        node = node.child(mountPoint.substring(start, next));
+        start = next + 1;
+      }
+    }
+
+    // when the route is a prefix, the last segment can be partial (e.g.: /foo* matches /foobar)
+    final int limit = exact ? path.length() : path.lastIndexOf('/') + 1;
+    int start = 1;
+
+    while (start < limit) {
+      int end = path.indexOf('/', start);
+      if (end == -1 || end > limit) {
+        end = limit;
+      }
+      String segment = path.substring(start, end);
+
+      if (param && segment.indexOf(':') != -1) {
+        if (!RE_PARAM_SEGMENT.matcher(segment).matches()) {
+          // mixed literal and parameter segment, stop indexing here
+          node.prefix.set(position);
+          return node;
+        }
+        node = node.param();
+      } else {
+        if (param && !PathMatcher.isRegexSafe(segment)) {
+          // the segment would be interpreted as a regular expression
+          node.prefix.set(position);
+          return node;
+        }
+        node = node.child(segment);
+      }
+      start = end + 1;
+    }
+
+    if (exact) {
+      node.exact.set(position);
+    } else {
+      node.prefix.set(position);
+    }
+    return node;
+  }
+
+  private Node addAlways(int position, Node mountNode) {
+    if (mountNode == null) {
+      always.set(position);
+    } else {
+      // the routes of a sub router can only match what the mount point matches
+      mountNode.prefix.set(position);
+    }
+    return mountNode;
+  }
+
+  /**
+   * Checks that the pattern of the route was generated from its parameterized path.
+   */
+  private static boolean isPathPattern(RouteState state) {
+    final String path = state.isExactPath() ? state.getPath() : state.getPath() + "*";
+    try {
+      return state.getPattern().pattern().equals(RouteImpl.toRegex(path, new ArrayList<>()));
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package io.vertx.ext.web.impl;
 
 import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.net.impl.URIDecoder;
@@ -35,6 +36,21 @@ import java.util.regex.Pattern;
  */
 final class RouteState {
 
+  // the group names used by parameterized paths, to avoid building them on each match
+  private static final String[] GROUP_NAMES = new String[16];
+
+  static {
+    for (int i = 0; i < GROUP_NAMES.length; i++) {
+      GROUP_NAMES[i] = "p" + i;
+    }
+  }
+
+  private static final Handler<?>[] NO_HANDLERS = new Handler<?>[0];
+
+  // negotiation results that are not a media type of the route
+  private static final MIMEHeader NOT_ACCEPTABLE = new ParsableMIMEValue("*/*");
+  private static final MIMEHeader ACCEPT_ANY = new ParsableMIMEValue("*/*");
+
   private final RouteImpl route;
 
   private final String path;
@@ -46,6 +62,14 @@ final class RouteState {
   private final Set<MIMEHeader> produces;
   private final List<Handler<RoutingContext>> contextHandlers;
   private final List<Handler<RoutingContext>> failureHandlers;
+  // snapshots of the handler lists, used when routing
+  private final Handler<RoutingContext>[] contextHandlerArray;
+  private final Handler<RoutingContext>[] failureHandlerArray;
+  // content negotiation results by raw header value
+  private final NegotiationCache<Integer> consumesResults;
+  private final NegotiationCache<MIMEHeader> producesResults;
+  // the lower case host name when the virtual host pattern has no wildcard
+  private final String virtualHost;
   private final boolean added;
   private final Pattern pattern;
   private final List<String> groups;
@@ -55,8 +79,9 @@ final class RouteState {
   private final boolean pathEndsWithSlash;
   private final boolean exclusive;
   private final boolean exactPath;
+  private final PathMatcher pathMatcher;
 
-  private RouteState(RouteImpl route, String path, int order, boolean enabled, Set<HttpMethod> methods, Set<MIMEHeader> consumes, boolean emptyBodyPermittedWithConsumes, Set<MIMEHeader> produces, List<Handler<RoutingContext>> contextHandlers, List<Handler<RoutingContext>> failureHandlers, boolean added, Pattern pattern, List<String> groups, boolean useNormalizedPath, Set<String> namedGroupsInRegex, Pattern virtualHostPattern, boolean pathEndsWithSlash, boolean exclusive, boolean exactPath) {
+  private RouteState(RouteImpl route, String path, int order, boolean enabled, Set<HttpMethod> methods, Set<MIMEHeader> consumes, boolean emptyBodyPermittedWithConsumes, Set<MIMEHeader> produces, List<Handler<RoutingContext>> contextHandlers, List<Handler<RoutingContext>> failureHandlers, boolean added, Pattern pattern, List<String> groups, boolean useNormalizedPath, Set<String> namedGroupsInRegex, Pattern virtualHostPattern, boolean pathEndsWithSlash, boolean exclusive, boolean exactPath, PathMatcher pathMatcher) {
     this.route = route;
     this.path = path;
     this.order = order;
@@ -67,6 +92,11 @@ final class RouteState {
     this.produces = produces;
     this.contextHandlers = contextHandlers;
     this.failureHandlers = failureHandlers;
+    this.contextHandlerArray = toArray(contextHandlers);
+    this.failureHandlerArray = toArray(failureHandlers);
+    this.consumesResults = isEmpty(consumes) ? null : new NegotiationCache<>();
+    this.producesResults = isEmpty(produces) ? null : new NegotiationCache<>();
+    this.virtualHost = literalHost(virtualHostPattern);
     this.added = added;
     this.pattern = pattern;
     this.groups = groups;
@@ -76,6 +106,33 @@ final class RouteState {
     this.pathEndsWithSlash = pathEndsWithSlash;
     this.exclusive = exclusive;
     this.exactPath = exactPath;
+    this.pathMatcher = pathMatcher;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Handler<RoutingContext>[] toArray(List<Handler<RoutingContext>> handlers) {
+    if (handlers == null) {
+      return (Handler<RoutingContext>[]) NO_HANDLERS;
+    }
+    return (Handler<RoutingContext>[]) handlers.toArray(NO_HANDLERS);
+  }
+
+  /**
+   * @return the host name matched by the pattern created by {@link RouteImpl#virtualHost(String)} when it has no
+   * wildcard, otherwise {@code null}.
+   */
+  private static String literalHost(Pattern virtualHostPattern) {
+    if (virtualHostPattern == null) {
+      return null;
+    }
+    final String host = virtualHostPattern.pattern().replace("\\.", ".");
+    for (int i = 0; i < host.length(); i++) {
+      final char c = host.charAt(i);
+      if (!(Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '_')) {
+        return null;
+      }
+    }
+    return host.toLowerCase(Locale.ROOT);
   }
 
   RouteState(RouteImpl route, int order) {
@@ -98,7 +155,8 @@ final class RouteState {
       null,
       false,
       false,
-      false);
+      false,
+      null);
   }
 
   public RouteImpl getRoute() {
@@ -133,7 +191,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public int getOrder() {
@@ -160,7 +219,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public boolean isEnabled() {
@@ -187,7 +247,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public Set<HttpMethod> getMethods() {
@@ -214,7 +275,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public RouteState addMethod(HttpMethod method) {
@@ -237,7 +299,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
 
     newState.methods.add(method);
     return newState;
@@ -267,7 +330,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   RouteState addConsume(MIMEHeader mime) {
@@ -290,7 +354,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
 
     newState.consumes.add(mime);
     return newState;
@@ -320,7 +385,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public Set<MIMEHeader> getProduces() {
@@ -347,7 +413,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   RouteState addProduce(MIMEHeader mime) {
@@ -370,7 +437,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
 
     newState.produces.add(mime);
     return newState;
@@ -381,7 +449,7 @@ final class RouteState {
   }
 
   public int getContextHandlersLength() {
-    return contextHandlers == null ? 0 : contextHandlers.size();
+    return contextHandlerArray.length;
   }
 
   RouteState setContextHandlers(List<Handler<RoutingContext>> contextHandlers) {
@@ -404,7 +472,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   RouteState addContextHandler(Handler<RoutingContext> contextHandler) {
@@ -427,7 +496,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
 
     newState.contextHandlers.add(contextHandler);
     return newState;
@@ -438,7 +508,7 @@ final class RouteState {
   }
 
   public int getFailureHandlersLength() {
-    return failureHandlers == null ? 0 : failureHandlers.size();
+    return failureHandlerArray.length;
   }
 
   RouteState setFailureHandlers(List<Handler<RoutingContext>> failureHandlers) {
@@ -461,7 +531,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   RouteState addFailureHandler(Handler<RoutingContext> failureHandler) {
@@ -484,7 +555,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
 
     newState.failureHandlers.add(failureHandler);
     return newState;
@@ -514,7 +586,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public Pattern getPattern() {
@@ -541,7 +614,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public List<String> getGroups() {
@@ -568,7 +642,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   RouteState addGroup(String group) {
@@ -591,7 +666,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
 
     newState.groups.add(group);
     return newState;
@@ -621,7 +697,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public Set<String> getNamedGroupsInRegex() {
@@ -648,7 +725,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   RouteState addNamedGroupInRegex(String namedGroupInRegex) {
@@ -671,7 +749,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
 
     newState.namedGroupsInRegex.add(namedGroupInRegex);
     return newState;
@@ -681,6 +760,10 @@ final class RouteState {
     return virtualHostPattern;
   }
 
+  String getVirtualHost() {
+    return virtualHost;
+  }
+
   RouteState setVirtualHostPattern(Pattern virtualHostPattern) {
     return new RouteState(
       this.route,
@@ -701,7 +784,8 @@ final class RouteState {
       virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public boolean isPathEndsWithSlash() {
@@ -728,7 +812,8 @@ final class RouteState {
       this.virtualHostPattern,
       pathEndsWithSlash,
       this.exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public boolean isExclusive() {
@@ -755,7 +840,8 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       exclusive,
-      this.exactPath);
+      this.exactPath,
+      this.pathMatcher);
   }
 
   public boolean isExactPath() {
@@ -782,7 +868,36 @@ final class RouteState {
       this.virtualHostPattern,
       this.pathEndsWithSlash,
       this.exclusive,
-      exactPath);
+      exactPath,
+      this.pathMatcher);
+  }
+
+  public PathMatcher getPathMatcher() {
+    return pathMatcher;
+  }
+
+  RouteState setPathMatcher(PathMatcher pathMatcher) {
+    return new RouteState(
+      this.route,
+      this.path,
+      this.order,
+      this.enabled,
+      this.methods,
+      this.consumes,
+      this.emptyBodyPermittedWithConsumes,
+      this.produces,
+      this.contextHandlers,
+      this.failureHandlers,
+      this.added,
+      this.pattern,
+      this.groups,
+      this.useNormalizedPath,
+      this.namedGroupsInRegex,
+      this.virtualHostPattern,
+      this.pathEndsWithSlash,
+      this.exclusive,
+      this.exactPath,
+      pathMatcher);
   }
 
   private boolean containsMethod(HttpServerRequest request) {
@@ -800,6 +915,16 @@ final class RouteState {
    * @return 0 if route matches, otherwise it return the status code
    */
   public int matches(RoutingContextImplBase context, String mountPoint, boolean failure) {
+    return matches(context, mountPoint, null, false, failure);
+  }
+
+  /**
+   * Same as {@link #matches(RoutingContextImplBase, String, boolean)} but the path of the route prefixed by the mount
+   * point can be computed ahead with {@link #mountedPath(String)} and {@link #mountedPathEndsWithSlash(String)}.
+   *
+   * @return 0 if route matches, otherwise it return the status code
+   */
+  int matches(RoutingContextImplBase context, String mountPoint, String mountedPath, boolean mountedPathEndsWithSlash, boolean failure) {
 
     if (failure && !hasNextFailureHandler(context) || !failure && !hasNextContextHandler(context)) {
       return 404;
@@ -808,22 +933,36 @@ final class RouteState {
       return 404;
     }
     HttpServerRequest request = context.request();
-    if (path != null && pattern == null && !pathMatches(mountPoint, context)) {
+    if (virtualHostPattern != null && !virtualHostMatches(request.host())) {
+      // routes for other hosts are not considered at all
       return 404;
     }
+    if (path != null && pattern == null) {
+      if (mountedPath != null) {
+        if (!pathMatches(mountedPath, mountedPathEndsWithSlash, context)) {
+          return 404;
+        }
+      } else if (!pathMatches(mountPoint, context)) {
+        return 404;
+      }
+    }
     if (pattern != null) {
       String path = useNormalizedPath ? context.normalizedPath() : context.request().path();
+      int strip = 0;
       if (mountPoint != null) {
-        int strip = mountPoint.length();
+        strip = mountPoint.length();
         // mount point can have significant slash
         if (mountPoint.charAt(strip - 1)== '/') {
           strip--;
         }
-        path = path.substring(strip);
       }
 
-      Matcher m = pattern.matcher(path);
-      if (m.matches()) {
+      if (pathMatcher != null && groups != null && groups.size() == pathMatcher.params()) {
+        // simple parameterized path, avoid the regex
+        int[] offsets = pathMatcher.match(path, strip);
+        if (offsets == null) {
+          return 404;
+        }
 
         if (!isEmpty(methods) && !containsMethod(request)) {
           // If I'm here path or path pattern matches, but the method is wrong
@@ -833,55 +972,21 @@ final class RouteState {
         context.matchRest = -1;
         context.matchNormalized = useNormalizedPath;
 
-        if (m.groupCount() > 0) {
-          if (!exactPath) {
-            context.matchRest = m.start("rest");
-          }
-
-          if (!isEmpty(groups)) {
-            // Pattern - named params
-            // decode the path as it could contain escaped chars.
-            for (int i = 0; i < Math.min(groups.size(), m.groupCount()); i++) {
-              final String k = groups.get(i);
-              String undecodedValue;
-              // We try to take value in three ways:
-              // 1. group name of type p0, p1, pN (most frequent and used by vertx params)
-              // 2. group name inside the regex
-              // 3. No group name
-              try {
-                undecodedValue = m.group("p" + i);
-              } catch (IllegalArgumentException e) {
-                try {
-                  undecodedValue = m.group(k);
-                } catch (IllegalArgumentException e1) {
-                  // Groups starts from 1 (0 group is total match)
-                  undecodedValue = m.group(i + 1);
-                }
-              }
-              addPathParam(context, k, undecodedValue);
-            }
-          } else {
-            // Straight regex - un-named params
-            // decode the path as it could contain escaped chars.
-            if (!isEmpty(namedGroupsInRegex)) {
-              for (String namedGroup : namedGroupsInRegex) {
-                String namedGroupValue = m.group(namedGroup);
-                if (namedGroupValue != null) {
-                  addPathParam(context, namedGroup, namedGroupValue);
-                }
-              }
-            }
-            for (int i = 0; i < m.groupCount(); i++) {
-              String group = m.group(i + 1);
-              if (group != null) {
-                final String k = "param" + i;
-                addPathParam(context, k, group);
-              }
-            }
-          }
+        if (!exactPath) {
+          context.matchRest = offsets[offsets.length - 1] - strip;
+        }
+        if (!groups.isEmpty()) {
+          // the values are only decoded when they are used
+          context.addPathParams(path, groups, offsets);
         }
       } else {
-        return 404;
+        if (strip > 0) {
+          path = path.substring(strip);
+        }
+        int result = regexMatches(context, request, path);
+        if (result != 0) {
+          return result;
+        }
       }
     } else {
       // no pattern check for wrong method
@@ -893,59 +998,180 @@ final class RouteState {
 
     if (!isEmpty(consumes)) {
       // Can this route consume the specified content type
+      int result = consumes(context);
+      if (result != 0) {
+        return result;
+      }
+    }
+    if (!isEmpty(produces)) {
+      MIMEHeader selectedAccept = produces(context);
+      if (selectedAccept == NOT_ACCEPTABLE) {
+        return 406;
+      }
+      if (selectedAccept != ACCEPT_ANY) {
+        context.setAcceptableContentType(selectedAccept.rawValue());
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return 0 if the route can consume the request content type, otherwise the status code
+   */
+  private int consumes(RoutingContextImplBase context) {
+    String header = context.request().getHeader(HttpHeaders.CONTENT_TYPE);
+    if (header == null) {
+      header = "";
+    }
+    Integer result = consumesResults.get(header);
+    if (result == null) {
       MIMEHeader contentType = context.parsedHeaders().contentType();
       MIMEHeader consumal = contentType.findMatchedBy(consumes);
       if (consumal == null && !(contentType.rawValue().isEmpty() && emptyBodyPermittedWithConsumes)) {
         if (contentType.rawValue().isEmpty()) {
-          return 400;
+          result = 400;
         } else {
-          return 415;
+          result = 415;
         }
+      } else {
+        result = 0;
       }
+      consumesResults.put(header, result);
     }
-    List<MIMEHeader> acceptableTypes = context.parsedHeaders().accept();
-    if (!isEmpty(produces) && !acceptableTypes.isEmpty()) {
-      MIMEHeader selectedAccept = context.parsedHeaders().findBestUserAcceptedIn(acceptableTypes, produces);
-      if (selectedAccept != null) {
-        context.setAcceptableContentType(selectedAccept.rawValue());
+    return result;
+  }
+
+  /**
+   * @return the media type of the route accepted by the request, {@link #ACCEPT_ANY} when the request doesn't
+   * constrain it or {@link #NOT_ACCEPTABLE}
+   */
+  private MIMEHeader produces(RoutingContextImplBase context) {
+    final String header = context.request().getHeader(HttpHeaders.ACCEPT);
+    if (header == null) {
+      return ACCEPT_ANY;
+    }
+    MIMEHeader result = producesResults.get(header);
+    if (result == null) {
+      List<MIMEHeader> acceptableTypes = context.parsedHeaders().accept();
+      if (acceptableTypes.isEmpty()) {
+        result = ACCEPT_ANY;
       } else {
-        return 406;
+        result = context.parsedHeaders().findBestUserAcceptedIn(acceptableTypes, produces);
+        if (result == null) {
+          result = NOT_ACCEPTABLE;
+        }
       }
+      producesResults.put(header, result);
     }
-    if (!virtualHostMatches(context.request().host())) {
+    return result;
+  }
+
+  private int regexMatches(RoutingContextImplBase context, HttpServerRequest request, String path) {
+    Matcher m = pattern.matcher(path);
+    if (m.matches()) {
+
+      if (!isEmpty(methods) && !containsMethod(request)) {
+        // If I'm here path or path pattern matches, but the method is wrong
+        return 405;
+      }
+
+      context.matchRest = -1;
+      context.matchNormalized = useNormalizedPath;
+
+      if (m.groupCount() > 0) {
+        if (!exactPath) {
+          context.matchRest = m.start("rest");
+        }
+
+        if (!isEmpty(groups)) {
+          // Pattern - named params
+          // decode the path as it could contain escaped chars.
+          for (int i = 0; i < Math.min(groups.size(), m.groupCount()); i++) {
+            final String k = groups.get(i);
+            String undecodedValue;
+            // We try to take value in three ways:
+            // 1. group name of type p0, p1, pN (most frequent and used by vertx params)
+            // 2. group name inside the regex
+            // 3. No group name
+            try {
+              undecodedValue = m.group(groupName(i));
+            } catch (IllegalArgumentException e) {
+              try {
+                undecodedValue = m.group(k);
+              } catch (IllegalArgumentException e1) {
+                // Groups starts from 1 (0 group is total match)
+                undecodedValue = m.group(i + 1);
+              }
+            }
+            addPathParam(context, k, undecodedValue);
+          }
+        } else {
+          // Straight regex - un-named params
+          // decode the path as it could contain escaped chars.
+          if (!isEmpty(namedGroupsInRegex)) {
+            for (String namedGroup : namedGroupsInRegex) {
+              String namedGroupValue = m.group(namedGroup);
+              if (namedGroupValue != null) {
+                addPathParam(context, namedGroup, namedGroupValue);
+              }
+            }
+          }
+          for (int i = 0; i < m.groupCount(); i++) {
+            String group = m.group(i + 1);
+            if (group != null) {
+              final String k = "param" + i;
+              addPathParam(context, k, group);
+            }
+          }
+        }
+      }
+    } else {
       return 404;
     }
     return 0;
   }
 
-  private boolean pathMatches(String mountPoint, RoutingContext ctx) {
-    final boolean rootRouter = mountPoint == null;
-    final boolean pathEndsWithSlash;
-    final String thePath;
+  private static String groupName(int i) {
+    return i < GROUP_NAMES.length ? GROUP_NAMES[i] : "p" + i;
+  }
 
-    if (rootRouter) {
-      thePath = path;
-      pathEndsWithSlash = this.pathEndsWithSlash;
+  /**
+   * @return the path of the route when mounted on the given mount point.
+   */
+  String mountedPath(String mountPoint) {
+    if (mountPoint == null) {
+      return path;
+    }
+    // path is "/"
+    if (path.length() == 1) {
+      // mount point is always assumed to be a directory so
+      // we must ignore the final slash
+      return mountPoint;
+    }
+    // solve the double slash when mount point ends with slash
+    if (mountPoint.charAt(mountPoint.length() - 1) == '/') {
+      return mountPoint + path.substring(1);
     } else {
-      boolean mountPointEndsWithSlash = mountPoint.charAt(mountPoint.length() - 1) == '/';
-      // path is "/"
-      if (path.length() == 1) {
-        // mount point is always assumed to be a directory so
-        // we must ignore the final slash
-        thePath = mountPoint;
-        // so this is a special case we can't consider the configured route but the mount point itself
-        pathEndsWithSlash = mountPointEndsWithSlash;
-      } else {
-        // solve the double slash when mount point ends with slash
-        if (mountPointEndsWithSlash) {
-          thePath = mountPoint + path.substring(1);
-        } else {
-          thePath = mountPoint + path;
-        }
-        pathEndsWithSlash = this.pathEndsWithSlash;
-      }
+      return mountPoint + path;
     }
+  }
 
+  /**
+   * @return whether the final slash of {@link #mountedPath(String)} is significant.
+   */
+  boolean mountedPathEndsWithSlash(String mountPoint) {
+    if (mountPoint != null && path.length() == 1) {
+      // so this is a special case we can't consider the configured route but the mount point itself
+      return mountPoint.charAt(mountPoint.length() - 1) == '/';
+    }
+    return pathEndsWithSlash;
+  }
+
+  private boolean pathMatches(String mountPoint, RoutingContext ctx) {
+    return pathMatches(mountedPath(mountPoint), mountedPathEndsWithSlash(mountPoint), ctx);
+  }
+
+  private boolean pathMatches(String thePath, boolean pathEndsWithSlash, RoutingContext ctx) {
     String requestPath;
 
     if (useNormalizedPath) {
@@ -978,15 +1204,29 @@ final class RouteState {
   }
 
   private boolean virtualHostMatches(String host) {
-    if (virtualHostPattern == null) return true;
-    boolean match = false;
-    for (String h : host.split(":")) {
-      if (virtualHostPattern.matcher(h).matches()) {
-        match = true;
-        break;
+    if (virtualHostPattern == null) {
+      return true;
+    }
+    if (host == null) {
+      return false;
+    }
+    // any part of host:port can match
+    int start = 0;
+    while (start <= host.length()) {
+      int end = host.indexOf(':', start);
+      if (end == -1) {
+        end = host.length();
+      }
+      if (virtualHost != null) {
+        if (end - start == virtualHost.length() && host.regionMatches(true, start, virtualHost, 0, end - start)) {
+          return true;
+        }
+      } else if (virtualHostPattern.matcher(host).region(start, end).matches()) {
+        return true;
       }
+      start = end + 1;
     }
-    return match;
+    return false;
   }
 
   private static boolean pathMatchesExact(String base, String other, boolean significantSlash) {
@@ -1024,23 +1264,19 @@ final class RouteState {
   }
 
   boolean hasNextContextHandler(RoutingContextImplBase context) {
-    return context.currentRouteNextHandlerIndex() < getContextHandlersLength();
+    return context.currentRouteNextHandlerIndex() < contextHandlerArray.length;
   }
 
   boolean hasNextFailureHandler(RoutingContextImplBase context) {
-    return context.currentRouteNextFailureHandlerIndex() < getFailureHandlersLength();
+    return context.currentRouteNextFailureHandlerIndex() < failureHandlerArray.length;
   }
 
   void handleContext(RoutingContextImplBase context) {
-    contextHandlers
-      .get(context.currentRouteNextHandlerIndex() - 1)
-      .handle(context);
+    contextHandlerArray[context.currentRouteNextHandlerIndex() - 1].handle(context);
   }
 
   void handleFailure(RoutingContextImplBase context) {
-    failureHandlers
-      .get(context.currentRouteNextFailureHandlerIndex() - 1)
-      .handle(context);
+    failureHandlerArray[context.currentRouteNextFailureHandlerIndex() - 1].handle(context);
   }
 
   @Override
@@ -1064,6 +1300,7 @@ final class RouteState {
       ", pathEndsWithSlash=" + pathEndsWithSlash +
       ", exclusive=" + exclusive +
       ", exactPath=" + exactPath +
+      ", pathMatcher=" + (pathMatcher != null) +
       '}';
   }
 }
@@ -25,6 +25,7 @@ import io.vertx.core.impl.logging.LoggerFactory;
 import io.vertx.ext.web.AllowForwardHeaders;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RouterMetrics;
 import io.vertx.ext.web.RoutingContext;
 
 import java.util.*;
@@ -52,7 +53,7 @@ public class RouterImpl implements Router {
     if (log.isTraceEnabled()) {
       log.trace("Router: " + System.identityHashCode(this) + " accepting request " + request.method() + " " + request.absoluteURI());
     }
-    new RoutingContextImpl(null, this, request, state.getRoutes()).next();
+    new RoutingContextImpl(null, this, request, state.getIndex()).next();
   }
 
   @Override
@@ -233,12 +234,12 @@ public class RouterImpl implements Router {
 
   @Override
   public void handleContext(RoutingContext ctx) {
-    new RoutingContextWrapper(getAndCheckRoutePath(ctx), state.getRoutes(), ctx).next();
+    new RoutingContextWrapper(getAndCheckRoutePath(ctx), state.getIndex(), ctx).next();
   }
 
   @Override
   public void handleFailure(RoutingContext ctx) {
-    new RoutingContextWrapper(getAndCheckRoutePath(ctx), state.getRoutes(), ctx).next();
+    new RoutingContextWrapper(getAndCheckRoutePath(ctx), state.getIndex(), ctx).next();
   }
 
   @Override
@@ -275,6 +276,20 @@ public class RouterImpl implements Router {
     return state.getAllowForward();
   }
 
+  @Override
+  public synchronized Router enableMetrics(boolean enable) {
+    if (enable != (state.getMetrics() != null)) {
+      // the index resolves the counters of the routes, a new state rebuilds it
+      state = state.setMetrics(enable ? new RouterMetricsImpl() : null);
+    }
+    return this;
+  }
+
+  @Override
+  public RouterMetrics metrics() {
+    return state.getMetrics();
+  }
+
   @Override
   public Route mountSubRouter(String mountPoint, Router subRouter) {
     if (mountPoint.endsWith("*")) {
@@ -285,6 +300,15 @@ public class RouterImpl implements Router {
       .subRouter(subRouter);
   }
 
+  @Override
+  public Route mountSubRouter(String mountPoint, Router subRouter, boolean flatten) {
+    final Route route = mountSubRouter(mountPoint, subRouter);
+    if (flatten) {
+      ((RouteImpl) route).flatten((RouterImpl) subRouter);
+    }
+    return route;
+  }
+
   @Override
   public synchronized Router errorHandler(int statusCode, Handler<RoutingContext> errorHandler) {
     state = state.putErrorHandler(statusCode, errorHandler);
@@ -301,18 +325,30 @@ public class RouterImpl implements Router {
 
   synchronized void remove(RouteImpl route) {
     state = state.removeRoute(route);
+    if (state.getMetrics() != null) {
+      state.getMetrics().remove(route);
+    }
     // notify the listeners as the routes are changed
     if (state.getModifiedHandler() != null) {
       state.getModifiedHandler().handle(this);
     }
   }
 
+  synchronized void reindex() {
+    // the route was modified after being added, the index must be rebuilt
+    state = state.reindex();
+  }
+
   Vertx vertx() {
     return vertx;
   }
 
-  Iterator<RouteImpl> iterator() {
-    return state.getRoutes().iterator();
+  RouterState state() {
+    return state;
+  }
+
+  RouteIndex index() {
+    return state.getIndex();
   }
 
   Handler<RoutingContext> getErrorHandlerByStatusCode(int statusCode) {
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.impl;
+
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RouterMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The route matching metrics of a router, the counters are {@link LongAdder}s so the event loops routing requests
+ * don't contend on them.
+ * <p>
+ * The counters of the routes are resolved when the {@link RouteIndex} is built, recording a metric doesn't need a
+ * lookup.
+ * <p>
+ * This class is thread-safe
+ */
+final class RouterMetricsImpl implements RouterMetrics {
+
+  static final int BUCKETS = 16;
+
+  static final class RouteCounters {
+    final LongAdder hits = new LongAdder();
+    final LongAdder failedMatches = new LongAdder();
+    final LongAdder matchTime = new LongAdder();
+    final LongAdder handlerTime = new LongAdder();
+
+    void reset() {
+      hits.reset();
+      failedMatches.reset();
+      matchTime.reset();
+      handlerTime.reset();
+    }
+  }
+
+  private final Map<RouteImpl, RouteCounters> routes = new ConcurrentHashMap<>();
+  private final LongAdder[] routesEvaluated = new LongAdder[BUCKETS];
+
+  RouterMetricsImpl() {
+    for (int i = 0; i < BUCKETS; i++) {
+      routesEvaluated[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * @return the counters of the given route, created on first use.
+   */
+  RouteCounters counters(RouteImpl route) {
+    return routes.computeIfAbsent(route, k -> new RouteCounters());
+  }
+
+  void remove(RouteImpl route) {
+    routes.remove(route);
+  }
+
+  /**
+   * Records the number of routes evaluated to route a request.
+   */
+  void routesEvaluated(int count) {
+    // 0 goes in the first bucket, then one bucket per power of 2
+    final int bucket = 32 - Integer.numberOfLeadingZeros(count);
+    routesEvaluated[Math.min(bucket, BUCKETS - 1)].increment();
+  }
+
+  @Override
+  public long hits(Route route) {
+    final RouteCounters counters = routes.get(route);
+    return counters == null ? 0 : counters.hits.sum();
+  }
+
+  @Override
+  public long failedMatches(Route route) {
+    final RouteCounters counters = routes.get(route);
+    return counters == null ? 0 : counters.failedMatches.sum();
+  }
+
+  @Override
+  public long matchTime(Route route) {
+    final RouteCounters counters = routes.get(route);
+    return counters == null ? 0 : counters.matchTime.sum();
+  }
+
+  @Override
+  public long handlerTime(Route route) {
+    final RouteCounters counters = routes.get(route);
+    return counters == null ? 0 : counters.handlerTime.sum();
+  }
+
+  @Override
+  public List<Long> routesEvaluated() {
+    final List<Long> buckets = new ArrayList<>(BUCKETS);
+    for (LongAdder bucket : routesEvaluated) {
+      buckets.add(bucket.sum());
+    }
+    return buckets;
+  }
+
+  @Override
+  public void reset() {
+    for (RouteCounters counters : routes.values()) {
+      counters.reset();
+    }
+    for (LongAdder bucket : routesEvaluated) {
+      bucket.reset();
+    }
+  }
+}
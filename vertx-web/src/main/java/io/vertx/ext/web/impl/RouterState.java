@@ -59,14 +59,18 @@ final class RouterState {
   private final Map<Integer, Handler<RoutingContext>> errorHandlers;
   private final Handler<Router> modifiedHandler;
   private final AllowForwardHeaders allowForward;
+  private final RouterMetricsImpl metrics;
+  // lazily computed from the routes, it is immutable so a race will only compute it twice
+  private volatile RouteIndex index;
 
-  public RouterState(RouterImpl router, Set<RouteImpl> routes, int orderSequence, Map<Integer, Handler<RoutingContext>> errorHandlers, Handler<Router> modifiedHandler, AllowForwardHeaders allowForward) {
+  public RouterState(RouterImpl router, Set<RouteImpl> routes, int orderSequence, Map<Integer, Handler<RoutingContext>> errorHandlers, Handler<Router> modifiedHandler, AllowForwardHeaders allowForward, RouterMetricsImpl metrics) {
     this.router = router;
     this.routes = routes;
     this.orderSequence = orderSequence;
     this.errorHandlers = errorHandlers;
     this.modifiedHandler = modifiedHandler;
     this.allowForward = allowForward;
+    this.metrics = metrics;
   }
 
   public RouterState(RouterImpl router) {
@@ -76,7 +80,8 @@ final class RouterState {
       0,
       null,
       null,
-      AllowForwardHeaders.NONE);
+      AllowForwardHeaders.NONE,
+      null);
   }
 
   public RouterImpl router() {
@@ -90,6 +95,37 @@ final class RouterState {
     return routes;
   }
 
+  /**
+   * @return the path index over the current routes, rebuilt when a flattened sub router changed.
+   */
+  public RouteIndex getIndex() {
+    RouteIndex index = this.index;
+    if (index == null || index.isStale()) {
+      if (routes == null) {
+        index = RouteIndex.EMPTY;
+      } else {
+        index = new RouteIndex(routes, metrics);
+      }
+      this.index = index;
+    }
+    return index;
+  }
+
+  /**
+   * Routes are mutable after being added, so when a route changes in a way that affects the index, the state must be
+   * replaced in order to rebuild the index.
+   */
+  RouterState reindex() {
+    return new RouterState(
+      this.router,
+      this.routes,
+      this.orderSequence,
+      this.errorHandlers,
+      this.modifiedHandler,
+      this.allowForward,
+      this.metrics);
+  }
+
   RouterState setRoutes(Set<RouteImpl> routes) {
     RouterState newState = new RouterState(
       this.router,
@@ -97,7 +133,8 @@ final class RouterState {
       this.orderSequence,
       this.errorHandlers,
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
 
     newState.routes.addAll(routes);
     return newState;
@@ -116,7 +153,8 @@ final class RouterState {
       this.orderSequence,
       this.errorHandlers,
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
   }
 
   RouterState clearRoutes() {
@@ -126,7 +164,8 @@ final class RouterState {
       this.orderSequence,
       this.errorHandlers,
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
   }
 
   RouterState removeRoute(RouteImpl route) {
@@ -142,7 +181,8 @@ final class RouterState {
       this.orderSequence,
       this.errorHandlers,
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
   }
 
   public int getOrderSequence() {
@@ -156,7 +196,8 @@ final class RouterState {
       this.orderSequence + 1,
       this.errorHandlers,
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
   }
 
   RouterState setOrderSequence(int orderSequence) {
@@ -166,7 +207,8 @@ final class RouterState {
       orderSequence,
       this.errorHandlers,
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
   }
 
   public Map<Integer, Handler<RoutingContext>> getErrorHandlers() {
@@ -180,7 +222,8 @@ final class RouterState {
       this.orderSequence,
       errorHandlers,
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
   }
 
   Handler<RoutingContext> getErrorHandler(int errorCode) {
@@ -197,7 +240,8 @@ final class RouterState {
       this.orderSequence,
       this.errorHandlers == null ? new HashMap<>() : new HashMap<>(errorHandlers),
       this.modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
 
     newState.errorHandlers.put(errorCode, errorHandler);
     return newState;
@@ -214,7 +258,8 @@ final class RouterState {
       this.orderSequence,
       this.errorHandlers,
       modifiedHandler,
-      this.allowForward);
+      this.allowForward,
+      this.metrics);
   }
 
   public RouterState setAllowForward(AllowForwardHeaders allow) {
@@ -224,13 +269,29 @@ final class RouterState {
       this.orderSequence,
       this.errorHandlers,
       this.modifiedHandler,
-      allow);
+      allow,
+      this.metrics);
   }
 
   public AllowForwardHeaders getAllowForward() {
     return allowForward;
   }
 
+  public RouterState setMetrics(RouterMetricsImpl metrics) {
+    return new RouterState(
+      this.router,
+      this.routes,
+      this.orderSequence,
+      this.errorHandlers,
+      this.modifiedHandler,
+      this.allowForward,
+      metrics);
+  }
+
+  public RouterMetricsImpl getMetrics() {
+    return metrics;
+  }
+
   @Override
   public String toString() {
     return "RouterState{" +
@@ -239,6 +300,7 @@ final class RouterState {
       ", errorHandlers=" + errorHandlers +
       ", modifiedHandler=" + modifiedHandler +
       ", this.allowForward=" + allowForward +
+      ", metrics=" + (metrics != null) +
       '}';
   }
 }
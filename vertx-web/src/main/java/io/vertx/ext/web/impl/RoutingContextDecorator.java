@@ -12,6 +12,7 @@ import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.auth.User;
 import io.vertx.ext.web.*;
 
@@ -150,6 +151,21 @@ public class RoutingContextDecorator implements RoutingContextInternal {
     return decoratedContext.getBodyAsJsonArray();
   }
 
+  @Override
+  public ReadStream<JsonObject> getBodyAsJsonStream() {
+    return decoratedContext.getBodyAsJsonStream();
+  }
+
+  @Override
+  public void setBodyAsJsonStream(ReadStream<JsonObject> stream) {
+    ((RoutingContextInternal) decoratedContext).setBodyAsJsonStream(stream);
+  }
+
+  @Override
+  public void mergeFormAttributes() {
+    ((RoutingContextInternal) decoratedContext).mergeFormAttributes();
+  }
+
   @Override
   public String getBodyAsString() {
     return decoratedContext.getBodyAsString();
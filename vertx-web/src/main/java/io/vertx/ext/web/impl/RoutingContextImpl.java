@@ -25,6 +25,7 @@ import io.vertx.core.http.*;
 import io.vertx.core.http.impl.HttpUtils;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.auth.User;
 import io.vertx.ext.web.*;
 import io.vertx.ext.web.codec.impl.BodyCodecImpl;
@@ -44,6 +45,9 @@ public class RoutingContextImpl extends RoutingContextImplBase {
 
   private Map<String, Object> data;
   private Map<String, String> pathParams;
+  // path params that have been matched but not decoded yet
+  private List<PendingPathParams> pendingPathParams;
+  private boolean pendingPathParamsHandler;
   private MultiMap queryParams;
   private Map<Integer, Handler<Void>> headersEndHandlers;
   private Map<Integer, Handler<Void>> bodyEndHandlers;
@@ -57,6 +61,7 @@ public class RoutingContextImpl extends RoutingContextImplBase {
   private ParsableHeaderValuesContainer parsedHeaders;
 
   private Buffer body;
+  private ReadStream<JsonObject> bodyStream;
   private Set<FileUpload> fileUploads;
   private Session session;
   private User user;
@@ -64,12 +69,11 @@ public class RoutingContextImpl extends RoutingContextImplBase {
   private volatile boolean isSessionAccessed = false;
   private volatile boolean endHandlerCalled = false;
 
-  public RoutingContextImpl(String mountPoint, RouterImpl router, HttpServerRequest request, Set<RouteImpl> routes) {
+  public RoutingContextImpl(String mountPoint, RouterImpl router, HttpServerRequest request, RouteIndex routes) {
     super(mountPoint, routes);
     this.router = router;
     this.request = new HttpServerRequestWrapper(request, router.getAllowForward());
 
-    fillParsedHeaders(request);
     if (request.path().length() == 0) {
       // HTTP paths must start with a '/'
       fail(400);
@@ -282,6 +286,21 @@ public class RoutingContextImpl extends RoutingContextImplBase {
     return null;
   }
 
+  @Override
+  public ReadStream<JsonObject> getBodyAsJsonStream() {
+    return bodyStream;
+  }
+
+  @Override
+  public void setBodyAsJsonStream(ReadStream<JsonObject> stream) {
+    this.bodyStream = stream;
+  }
+
+  @Override
+  public void mergeFormAttributes() {
+    ((HttpServerRequestWrapper) request).mergeFormAttributes();
+  }
+
   @Override
   public Buffer getBody() {
     return body;
@@ -340,6 +359,10 @@ public class RoutingContextImpl extends RoutingContextImplBase {
 
   @Override
   public ParsableHeaderValuesContainer parsedHeaders() {
+    if (parsedHeaders == null) {
+      // routes negotiating the content type cache the result, the headers are only parsed when needed
+      fillParsedHeaders(request);
+    }
     return parsedHeaders;
   }
 
@@ -444,12 +467,37 @@ public class RoutingContextImpl extends RoutingContextImplBase {
   }
 
   private Map<String, String> getPathParams() {
+    decodePathParams();
     if (pathParams == null) {
       pathParams = new HashMap<>();
     }
     return pathParams;
   }
 
+  @Override
+  void addPathParams(String path, List<String> names, int[] offsets) {
+    if (!pendingPathParamsHandler) {
+      pendingPathParamsHandler = true;
+      // the request params must include the path params too
+      ((HttpServerRequestWrapper) request).paramsHandler(v -> decodePathParams());
+    }
+    if (pendingPathParams == null) {
+      pendingPathParams = new ArrayList<>(2);
+    }
+    pendingPathParams.add(new PendingPathParams(path, names, offsets));
+  }
+
+  private void decodePathParams() {
+    if (pendingPathParams != null) {
+      final List<PendingPathParams> pending = pendingPathParams;
+      // adding the params reads them again
+      pendingPathParams = null;
+      for (PendingPathParams params : pending) {
+        super.addPathParams(params.path, params.names, params.offsets);
+      }
+    }
+  }
+
   private Map<Integer, Handler<Void>> getHeadersEndHandlers() {
     if (headersEndHandlers == null) {
       // order is important we we should traverse backwards
@@ -511,9 +559,7 @@ public class RoutingContextImpl extends RoutingContextImplBase {
   }
 
   private void doFail() {
-    this.iter = router.iterator();
-    currentRoute = null;
-    next();
+    restart(router.index());
   }
 
   private Map<String, Object> getData() {
@@ -531,6 +577,18 @@ public class RoutingContextImpl extends RoutingContextImplBase {
     return seq;
   }
 
+  private static final class PendingPathParams {
+    private final String path;
+    private final List<String> names;
+    private final int[] offsets;
+
+    PendingPathParams(String path, List<String> names, int[] offsets) {
+      this.path = path;
+      this.names = names;
+      this.offsets = offsets;
+    }
+  }
+
   private static final String DEFAULT_404 =
     "<html><body><h1>Resource not found</h1></body></html>";
 
@@ -18,15 +18,16 @@ package io.vertx.ext.web.impl;
 
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
+import io.vertx.core.net.impl.URIDecoder;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.impl.HttpStatusException;
 
-import java.util.Iterator;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * @author <a href="http://tfox.org">Tim Fox</a>
@@ -35,13 +36,21 @@ public abstract class RoutingContextImplBase implements RoutingContextInternal {
 
   private static final Logger LOG = LoggerFactory.getLogger(RoutingContextImplBase.class);
 
-  private final Set<RouteImpl> routes;
-
   protected final String mountPoint;
-  protected Iterator<RouteImpl> iter;
+  private RouteIndex routes;
+  // the routes that can match the current path, computed lazily from the index
+  private BitSet candidates;
+  private int nextCandidate;
+  // the position of the last route that matched, routes before it can't change the match failure
+  private int lastMatch;
   protected RouteState currentRoute;
-  private AtomicInteger currentRouteNextHandlerIndex;
-  private AtomicInteger currentRouteNextFailureHandlerIndex;
+  // the mount point of the current route when it belongs to a flattened sub router
+  private String currentMountPoint;
+  // the counters of the current route when metrics are enabled
+  private RouterMetricsImpl.RouteCounters currentCounters;
+  // a routing context is only used from its event loop, the indexes don't need to be atomic
+  private int currentRouteNextHandlerIndex;
+  private int currentRouteNextFailureHandlerIndex;
   // When Route#matches executes, if it returns != 0 this flag is configured
   // to write the correct status code at the end of routing process
   int matchFailure;
@@ -50,18 +59,19 @@ public abstract class RoutingContextImplBase implements RoutingContextInternal {
   boolean matchNormalized;
   // internal runtime state
   private volatile long seen;
+  // the routes evaluated so far, recorded once the request ends
+  private int routesEvaluated;
+  private RouterMetricsImpl routesEvaluatedMetrics;
 
-  RoutingContextImplBase(String mountPoint, Set<RouteImpl> routes) {
+  RoutingContextImplBase(String mountPoint, RouteIndex routes) {
     this.mountPoint = mountPoint;
     this.routes = routes;
-    this.iter = routes.iterator();
-    this.currentRouteNextHandlerIndex = new AtomicInteger(0);
-    this.currentRouteNextFailureHandlerIndex = new AtomicInteger(0);
+    this.lastMatch = -1;
     resetMatchFailure();
   }
 
   @Override
-  public synchronized RoutingContextInternal visitHandler(int id) {
+  public RoutingContextInternal visitHandler(int id) {
     seen |= id;
     return this;
   }
@@ -73,6 +83,16 @@ public abstract class RoutingContextImplBase implements RoutingContextInternal {
 
   @Override
   public String mountPoint() {
+    if (currentMountPoint != null) {
+      return currentMountPoint;
+    }
+    return routerMountPoint();
+  }
+
+  /**
+   * @return the mount point of the router being iterated.
+   */
+  String routerMountPoint() {
     return mountPoint;
   }
 
@@ -85,31 +105,97 @@ public abstract class RoutingContextImplBase implements RoutingContextInternal {
   }
 
   int currentRouteNextHandlerIndex() {
-    return currentRouteNextHandlerIndex.intValue();
+    return currentRouteNextHandlerIndex;
   }
 
   int currentRouteNextFailureHandlerIndex() {
-    return currentRouteNextFailureHandlerIndex.intValue();
+    return currentRouteNextFailureHandlerIndex;
+  }
+
+  /**
+   * Adds the path params matched by a {@link PathMatcher}.
+   *
+   * @param path the matched path
+   * @param names the names of the params
+   * @param offsets the start and end offsets of each param in the path
+   */
+  void addPathParams(String path, List<String> names, int[] offsets) {
+    for (int i = 0; i < names.size(); i++) {
+      putPathParam(names.get(i), decodePathParam(path, offsets[2 * i], offsets[2 * i + 1]));
+    }
+  }
+
+  void putPathParam(String name, String value) {
+    HttpServerRequest request = request();
+    if (!request.params().contains(name)) {
+      request.params().add(name, value);
+    }
+    pathParams().put(name, value);
+  }
+
+  static String decodePathParam(String path, int start, int end) {
+    final String value = path.substring(start, end);
+    // plus signs are not decoded in paths, only escaped chars need decoding
+    if (value.indexOf('%') == -1) {
+      return value;
+    }
+    return URIDecoder.decodeURIComponent(value, false);
   }
 
   void restart() {
-    this.iter = routes.iterator();
+    restart(routes);
+  }
+
+  void restart(RouteIndex routes) {
+    this.routes = routes;
+    // the path may have changed
+    this.candidates = null;
+    this.nextCandidate = 0;
+    this.lastMatch = -1;
     currentRoute = null;
+    currentMountPoint = null;
+    currentCounters = null;
     next();
   }
 
+  /**
+   * @return the position of the next route that can match the current path or {@code -1} if there are no more
+   * routes to evaluate.
+   */
+  private int nextCandidate() {
+    if (candidates == null) {
+      candidates = routes.lookup(this, routerMountPoint());
+      if (candidates == null) {
+        candidates = routes.all();
+      } else {
+        // only the routes for the request method
+        candidates.and(routes.methods(request().method()));
+      }
+      // only the routes for the request host
+      final BitSet hosts = routes.hosts(request().host());
+      if (hosts != null) {
+        candidates.and(hosts);
+      }
+    }
+    int position = candidates.nextSetBit(nextCandidate);
+    if (position != -1) {
+      nextCandidate = position + 1;
+    }
+    return position;
+  }
+
   boolean iterateNext() {
     boolean failed = failed();
     if (currentRoute != null) { // Handle multiple handlers inside route object
       try {
         if (!failed && currentRoute.hasNextContextHandler(this)) {
-          currentRouteNextHandlerIndex.incrementAndGet();
+          currentRouteNextHandlerIndex++;
           resetMatchFailure();
-          currentRoute.handleContext(this);
+          handleContext(currentRoute, currentCounters);
           return true;
         } else if (failed && currentRoute.hasNextFailureHandler(this)) {
-          currentRouteNextFailureHandlerIndex.incrementAndGet();
-          currentRoute.handleFailure(this);
+          currentRouteNextFailureHandlerIndex++;
+          handleFailure(currentRoute, currentCounters);
           return true;
         }
       } catch (Throwable t) {
@@ -118,30 +204,60 @@ public abstract class RoutingContextImplBase implements RoutingContextInternal {
       }
     }
     // Search for more handlers
-    while (iter.hasNext()) {
+    final RouterMetricsImpl metrics = routes.metrics();
+    int evaluated = 0;
+    int position;
+    while ((position = nextCandidate()) != -1) {
       // state is locked at this moment
-      RouteState routeState = iter.next().state();
+      RouteState routeState = routes.get(position).state();
+      final RouterMetricsImpl.RouteCounters counters = metrics == null ? null : routes.counters(position);
 
-      currentRouteNextHandlerIndex.set(0);
-      currentRouteNextFailureHandlerIndex.set(0);
+      currentRouteNextHandlerIndex = 0;
+      currentRouteNextFailureHandlerIndex = 0;
       try {
-        int matchResult = routeState.matches(this, mountPoint(), failed);
+        final boolean nested = routes.isNested(position);
+        int matchResult;
+        if (counters == null) {
+          matchResult = routes.matches(position, this, routerMountPoint(), failed);
+        } else {
+          evaluated++;
+          final long start = System.nanoTime();
+          try {
+            matchResult = routes.matches(position, this, routerMountPoint(), failed);
+          } finally {
+            counters.matchTime.add(System.nanoTime() - start);
+          }
+          (matchResult == 0 ? counters.hits : counters.failedMatches).increment();
+        }
         if (matchResult == 0) {
           if (LOG.isTraceEnabled()) {
             LOG.trace("Route matches: " + routeState);
           }
           resetMatchFailure();
+          lastMatch = position;
+          if (routes.mountEnd(position) != -1) {
+            // the routes of the flattened sub router follow
+            continue;
+          }
           try {
             currentRoute = routeState;
+            currentMountPoint = nested ? routes.mountPoint(position, routerMountPoint()) : null;
+            currentCounters = counters;
             if (LOG.isTraceEnabled()) {
               LOG.trace("Calling the " + (failed ? "failure" : "") + " handler");
             }
             if (failed && currentRoute.hasNextFailureHandler(this)) {
-              currentRouteNextFailureHandlerIndex.incrementAndGet();
-              routeState.handleFailure(this);
+              currentRouteNextFailureHandlerIndex++;
+              if (metrics != null) {
+                routesEvaluated(metrics, evaluated);
+              }
+              handleFailure(routeState, counters);
             } else if (currentRoute.hasNextContextHandler(this)) {
-              currentRouteNextHandlerIndex.incrementAndGet();
-              routeState.handleContext(this);
+              currentRouteNextHandlerIndex++;
+              if (metrics != null) {
+                routesEvaluated(metrics, evaluated);
+              }
+              handleContext(routeState, counters);
             } else {
               continue;
             }
@@ -149,7 +265,16 @@ public abstract class RoutingContextImplBase implements RoutingContextInternal {
             handleInHandlerRuntimeFailure(routeState.getRouter(), failed, t);
           }
           return true;
-        } else if (matchResult == 405) {
+        }
+        if (routes.mountEnd(position) != -1) {
+          // the sub router is not mounted on this path, skip its routes
+          nextCandidate = routes.mountEnd(position) + 1;
+        }
+        if (nested) {
+          // a sub router doesn't report why its routes didn't match
+          continue;
+        }
+        if (matchResult == 405) {
           // invalid method match, means that
           // we should "update" the failure if not found to be invalid method
           if (this.matchFailure == 404) {
@@ -169,9 +294,96 @@ public abstract class RoutingContextImplBase implements RoutingContextInternal {
         return true;
       }
     }
+    if (metrics != null) {
+      routesEvaluated(metrics, evaluated);
+    }
+    if (!failed && matchFailure == 404) {
+      return checkMethodNotAllowed();
+    }
     return false;
   }
 
+  private void handleContext(RouteState routeState, RouterMetricsImpl.RouteCounters counters) {
+    if (counters == null) {
+      routeState.handleContext(this);
+      return;
+    }
+    // includes the time of the routing done by a synchronous call to next()
+    final long start = System.nanoTime();
+    try {
+      routeState.handleContext(this);
+    } finally {
+      counters.handlerTime.add(System.nanoTime() - start);
+    }
+  }
+
+  private void handleFailure(RouteState routeState, RouterMetricsImpl.RouteCounters counters) {
+    if (counters == null) {
+      routeState.handleFailure(this);
+      return;
+    }
+    final long start = System.nanoTime();
+    try {
+      routeState.handleFailure(this);
+    } finally {
+      counters.handlerTime.add(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * The routes that don't accept the request method were not evaluated, when nothing else matched they are evaluated
+   * to tell if the path would have matched with another method.
+   *
+   * @return true if the failure was already handled
+   */
+  private boolean checkMethodNotAllowed() {
+    final BitSet otherMethods = routes.lookup(this, routerMountPoint());
+    if (otherMethods == null) {
+      // all routes have been evaluated
+      return false;
+    }
+    otherMethods.andNot(routes.methods(request().method()));
+    otherMethods.andNot(routes.nested());
+    final BitSet hosts = routes.hosts(request().host());
+    if (hosts != null) {
+      otherMethods.and(hosts);
+    }
+
+    for (int position = otherMethods.nextSetBit(lastMatch + 1); position != -1; position = otherMethods.nextSetBit(position + 1)) {
+      RouteState routeState = routes.get(position).state();
+
+      currentRouteNextHandlerIndex = 0;
+      currentRouteNextFailureHandlerIndex = 0;
+      try {
+        if (routeState.matches(this, routerMountPoint(), false) == 405) {
+          this.matchFailure = 405;
+          break;
+        }
+      } catch (Throwable e) {
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("IllegalArgumentException thrown during iteration", e);
+        }
+        if (!this.response().ended()) {
+          unhandledFailure((e instanceof IllegalArgumentException) ? 400 : -1, e, routeState.getRouter());
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds the routes evaluated to find the next route to the count of the request, the count is recorded once when the
+   * response ends so that the histogram holds a single sample per request.
+   */
+  void routesEvaluated(RouterMetricsImpl metrics, int count) {
+    if (routesEvaluatedMetrics == null) {
+      routesEvaluatedMetrics = metrics;
+      addEndHandler(v -> metrics.routesEvaluated(routesEvaluated));
+    }
+    routesEvaluated += count;
+  }
+
   private void handleInHandlerRuntimeFailure(RouterImpl router, boolean failed, Throwable t) {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Throwable thrown from handler", t);
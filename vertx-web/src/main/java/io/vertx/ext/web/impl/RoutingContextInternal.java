@@ -15,6 +15,8 @@
  */
 package io.vertx.ext.web.impl;
 
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.RoutingContext;
 
 /**
@@ -41,4 +43,17 @@ public interface RoutingContextInternal extends RoutingContext {
    * @return true if the {@link #visitHandler(int)} has been called with the same id.
    */
   boolean seenHandler(int id);
+
+  /**
+   * Set the stream of the elements of a JSON array body. Used by the {@link io.vertx.ext.web.handler.BodyHandler}.
+   *
+   * @param stream the stream
+   */
+  void setBodyAsJsonStream(ReadStream<JsonObject> stream);
+
+  /**
+   * Merge the form attributes in the request params. Used by the {@link io.vertx.ext.web.handler.BodyHandler}. The
+   * attributes are not copied, the params become a view over both.
+   */
+  void mergeFormAttributes();
 }
@@ -28,6 +28,7 @@ import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.auth.User;
 import io.vertx.ext.web.*;
 
@@ -43,8 +44,8 @@ public class RoutingContextWrapper extends RoutingContextImplBase {
   protected final RoutingContext inner;
   private final String mountPoint;
 
-  public RoutingContextWrapper(String mountPoint, Set<RouteImpl> iter, RoutingContext inner) {
-    super(mountPoint, iter);
+  public RoutingContextWrapper(String mountPoint, RouteIndex routes, RoutingContext inner) {
+    super(mountPoint, routes);
     this.inner = inner;
     String parentMountPoint = inner.mountPoint();
     if (parentMountPoint == null) {
@@ -61,6 +62,26 @@ public class RoutingContextWrapper extends RoutingContextImplBase {
     }
   }
 
+  @Override
+  void addPathParams(String path, List<String> names, int[] offsets) {
+    if (inner instanceof RoutingContextImplBase) {
+      // let the root context decode the params lazily
+      ((RoutingContextImplBase) inner).addPathParams(path, names, offsets);
+    } else {
+      super.addPathParams(path, names, offsets);
+    }
+  }
+
+  @Override
+  void routesEvaluated(RouterMetricsImpl metrics, int count) {
+    if (inner instanceof RoutingContextImplBase) {
+      // the root context records the count of the whole request
+      ((RoutingContextImplBase) inner).routesEvaluated(metrics, count);
+    } else {
+      super.routesEvaluated(metrics, count);
+    }
+  }
+
   @Override
   public RoutingContextInternal visitHandler(int id) {
     return ((RoutingContextInternal) inner).visitHandler(id);
@@ -206,7 +227,7 @@ public class RoutingContextWrapper extends RoutingContextImplBase {
   }
 
   @Override
-  public String mountPoint() {
+  String routerMountPoint() {
     return mountPoint;
   }
 
@@ -261,6 +282,21 @@ public class RoutingContextWrapper extends RoutingContextImplBase {
     return inner.getBodyAsJsonArray();
   }
 
+  @Override
+  public ReadStream<JsonObject> getBodyAsJsonStream() {
+    return inner.getBodyAsJsonStream();
+  }
+
+  @Override
+  public void setBodyAsJsonStream(ReadStream<JsonObject> stream) {
+    ((RoutingContextInternal) inner).setBodyAsJsonStream(stream);
+  }
+
+  @Override
+  public void mergeFormAttributes() {
+    ((RoutingContextInternal) inner).mergeFormAttributes();
+  }
+
   @Override
   public Buffer getBody() {
     return inner.getBody();
@@ -94,10 +94,48 @@ public class Utils extends io.vertx.core.impl.Utils {
 
   private static final ZoneId ZONE_GMT = ZoneId.of("GMT");
 
+  /**
+   * A formatted date, RFC 1123 dates have a one second precision.
+   */
+  private static final class CachedDate {
+    final long second;
+    final String value;
+
+    CachedDate(long second, String value) {
+      this.second = second;
+      this.value = value;
+    }
+  }
+
+  // the current date, formatted at most once per second for all the responses
+  private static volatile CachedDate cachedDate = new CachedDate(Long.MIN_VALUE, null);
+
   public static String formatRFC1123DateTime(final long time) {
+    final CachedDate cached = cachedDate;
+    if (cached.second == Math.floorDiv(time, 1000L)) {
+      return cached.value;
+    }
     return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(time).atZone(ZONE_GMT));
   }
 
+  /**
+   * Formats the current time as an RFC 1123 date, e.g.: for the {@code Date} header. The formatted date is cached
+   * for the length of its second, so most calls don't format at all.
+   *
+   * @return the current formatted date
+   */
+  public static String currentRFC1123DateTime() {
+    final long now = System.currentTimeMillis();
+    final long second = Math.floorDiv(now, 1000L);
+    CachedDate cached = cachedDate;
+    if (cached.second != second) {
+      // a race only formats the same date twice
+      cached = new CachedDate(second, DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(now).atZone(ZONE_GMT)));
+      cachedDate = cached;
+    }
+    return cached.value;
+  }
+
   public static long parseRFC1123DateTime(final String header) {
     try {
       return header == null || header.isEmpty() ? -1 :
@@ -164,7 +202,25 @@ public class Utils extends io.vertx.core.impl.Utils {
     return fresh(ctx, -1);
   }
 
+  private static boolean etagMatches(String match, String etag) {
+    // if-none-match uses the weak comparison
+    return match.equals(etag) || match.equals("W/" + etag) || ("W/" + match).equals(etag);
+  }
+
   public static boolean fresh(RoutingContext ctx, long lastModified) {
+    return fresh(ctx, null, lastModified);
+  }
+
+  /**
+   * Checks the conditional headers of the request against the given validators.
+   *
+   * @param ctx the routing context
+   * @param etag the entity tag of the resource or {@code null} to use the {@code ETag} header of the response
+   * @param lastModified the last modified time in ms (second precision) or {@code -1} to use the
+   *                     {@code Last-Modified} header of the response
+   * @return {@code true} when the client copy is fresh and a {@code 304} can be sent
+   */
+  public static boolean fresh(RoutingContext ctx, String etag, long lastModified) {
 
     final HttpServerRequest req = ctx.request();
     final HttpServerResponse res = ctx.response();
@@ -189,7 +245,9 @@ public class Utils extends io.vertx.core.impl.Utils {
 
     // if-none-match
     if (noneMatch != null && !"*".equals(noneMatch)) {
-      final String etag = res.headers().get(HttpHeaders.ETAG);
+      if (etag == null) {
+        etag = res.headers().get(HttpHeaders.ETAG);
+      }
 
       if (etag == null) {
         return false;
@@ -209,8 +267,7 @@ public class Utils extends io.vertx.core.impl.Utils {
             }
             break;
           case ',':
-            String match = noneMatch.substring(start, end);
-            if (match.equals(etag) || match.equals("W/" + etag) || ("W/" + match).equals(etag)) {
+            if (etagMatches(noneMatch.substring(start, end), etag)) {
               etagStale = false;
               break loop;
             }
@@ -222,13 +279,18 @@ public class Utils extends io.vertx.core.impl.Utils {
         }
       }
 
+      // the last tag isn't followed by a comma
+      if (etagStale && start < end) {
+        etagStale = !etagMatches(noneMatch.substring(start, end), etag);
+      }
+
       if (etagStale) {
         return false;
       }
     }
 
-    // if-modified-since
-    if (modifiedSince != null) {
+    // if-modified-since, ignored when the entity tags matched (rfc7232 section 3.3)
+    if (modifiedSince != null && noneMatch == null) {
       if (lastModified == -1) {
         // no custom last modified provided, will use the response headers if any
         lastModified = parseRFC1123DateTime(res.headers().get(HttpHeaders.LAST_MODIFIED));
@@ -2760,4 +2760,167 @@ public class RouterTest extends WebTestBase {
 
     testRequest(HttpMethod.MKCOL, "/", 200, "socks");
   }
+
+  @Test
+  public void testManyRoutesKeepDeclarationOrder() throws Exception {
+    for (int i = 0; i < 500; i++) {
+      final int n = i;
+      router.get("/api/v" + i + "/quotes/:sym").handler(rc -> rc.response().setStatusMessage("v" + n + " " + rc.pathParam("sym")).end());
+    }
+    router.route("/api/*").handler(rc -> rc.response().setStatusMessage("prefix").end());
+    router.get("/api/v499/quotes/:sym").handler(rc -> rc.response().setStatusMessage("shadowed").end());
+    router.routeWithRegex(".*/other").handler(rc -> rc.response().setStatusMessage("regex").end());
+
+    testRequest(HttpMethod.GET, "/api/v0/quotes/abc", 200, "v0 abc");
+    testRequest(HttpMethod.GET, "/api/v499/quotes/xyz", 200, "v499 xyz");
+    testRequest(HttpMethod.GET, "/api/v499/quotes/xyz/", 200, "prefix");
+    testRequest(HttpMethod.GET, "/api/v500/quotes/xyz", 200, "prefix");
+    testRequest(HttpMethod.GET, "/other", 200, "regex");
+    testRequest(HttpMethod.POST, "/api/v1/quotes/xyz", 200, "prefix");
+    testRequest(HttpMethod.POST, "/foo/v1/quotes/xyz", 404, "Not Found");
+  }
+
+  @Test
+  public void testIndexPartialPrefixAndTrailingSlash() throws Exception {
+    router.route("/foo*").handler(rc -> rc.response().setStatusMessage("partial").end());
+    router.route("/bar/").handler(rc -> rc.response().setStatusMessage("slash").end());
+    router.route("/baz").handler(rc -> rc.response().setStatusMessage("baz").end());
+    router.route("/a/file-:name").handler(rc -> rc.response().setStatusMessage(rc.pathParam("name")).end());
+
+    testRequest(HttpMethod.GET, "/foobar", 200, "partial");
+    testRequest(HttpMethod.GET, "/foo/bar", 200, "partial");
+    testRequest(HttpMethod.GET, "/bar/", 200, "slash");
+    testRequest(HttpMethod.GET, "/bar", 404, "Not Found");
+    testRequest(HttpMethod.GET, "/baz/", 200, "baz");
+    testRequest(HttpMethod.GET, "/a/file-x", 200, "x");
+  }
+
+  @Test
+  public void testIndexUpdatedWhenRouteChanges() throws Exception {
+    Route route = router.route("/foo").handler(rc -> rc.response().setStatusMessage("changed").end());
+    testRequest(HttpMethod.GET, "/foo", 200, "changed");
+    route.path("/bar");
+    testRequest(HttpMethod.GET, "/foo", 404, "Not Found");
+    testRequest(HttpMethod.GET, "/bar", 200, "changed");
+    route.pathRegex("/b.z");
+    testRequest(HttpMethod.GET, "/bar", 404, "Not Found");
+    testRequest(HttpMethod.GET, "/baz", 200, "changed");
+  }
+
+  @Test
+  public void testMethodNotAllowedOnlyAfterLastMatch() throws Exception {
+    router.post("/a").handler(rc -> rc.response().setStatusMessage("post").end());
+    router.get("/a").handler(RoutingContext::next);
+    testRequest(HttpMethod.GET, "/a", 404, "Not Found");
+    router.put("/a").handler(rc -> rc.response().setStatusMessage("put").end());
+    testRequest(HttpMethod.GET, "/a", 405, "Method Not Allowed");
+    testRequest(HttpMethod.DELETE, "/a", 405, "Method Not Allowed");
+    testRequest(HttpMethod.DELETE, "/b", 404, "Not Found");
+    testRequest(HttpMethod.PUT, "/a", 200, "put");
+  }
+
+  @Test
+  public void testMethodAddedAfterRouteIsActive() throws Exception {
+    Route route = router.route("/a").method(HttpMethod.GET).handler(rc -> rc.response().setStatusMessage("ok").end());
+    testRequest(HttpMethod.POST, "/a", 405, "Method Not Allowed");
+    route.method(HttpMethod.POST);
+    testRequest(HttpMethod.POST, "/a", 200, "ok");
+  }
+
+  @Test
+  public void testPathParamsFromSeveralRoutes() throws Exception {
+    router.route("/blah/:abc/*").handler(RoutingContext::next);
+    router.route("/blah/:def/:abc").handler(rc -> {
+      assertEquals("x y", rc.request().getParam("abc"));
+      assertEquals("query", rc.request().getParam("def"));
+      rc.response().setStatusMessage(rc.pathParam("abc") + "|" + rc.pathParam("def")).end();
+    });
+    testRequest(HttpMethod.GET, "/blah/x%20y/z?def=query", 200, "z|x y");
+  }
+
+  @Test
+  public void testNegotiationResultsReused() throws Exception {
+    router.route().consumes("application/json").produces("application/json").produces("text/html")
+      .handler(rc -> rc.response().setStatusMessage(String.valueOf(rc.getAcceptableContentType())).end());
+    for (int i = 0; i < 3; i++) {
+      testRequestWithContentType(HttpMethod.POST, "/foo", "application/json", 200, "null");
+      testRequestWithContentType(HttpMethod.POST, "/foo", "text/plain", 415, "Unsupported Media Type");
+      testRequest(HttpMethod.POST, "/foo", req -> {
+        req.putHeader("Content-Type", "application/json");
+        req.putHeader("Accept", "text/html");
+      }, 200, "text/html", null);
+      testRequest(HttpMethod.POST, "/foo", req -> {
+        req.putHeader("Content-Type", "application/json");
+        req.putHeader("Accept", "image/png");
+      }, 406, "Not Acceptable", null);
+    }
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    assertNull(router.metrics());
+    Route foo = router.route("/foo").handler(rc -> rc.response().end());
+    Route bar = router.route("/bar").handler(rc -> rc.response().end());
+    router.enableMetrics(true);
+    RouterMetrics metrics = router.metrics();
+    assertNotNull(metrics);
+
+    testRequest(HttpMethod.GET, "/foo", 200, "OK");
+    testRequest(HttpMethod.GET, "/bar", 200, "OK");
+    testRequest(HttpMethod.GET, "/bar", 200, "OK");
+
+    assertEquals(1, metrics.hits(foo));
+    assertEquals(2, metrics.hits(bar));
+    assertEquals(0, metrics.failedMatches(foo));
+    assertEquals(0, metrics.failedMatches(bar));
+    assertTrue(metrics.handlerTime(bar) > 0);
+    List<Long> evaluated = metrics.routesEvaluated();
+    assertEquals(16, evaluated.size());
+    // the index leaves a single route to evaluate for each request
+    assertEquals(3, evaluated.get(1).longValue());
+
+    metrics.reset();
+    assertEquals(0, metrics.hits(bar));
+    router.enableMetrics(false);
+    assertNull(router.metrics());
+    testRequest(HttpMethod.GET, "/bar", 200, "OK");
+    assertEquals(0, metrics.hits(bar));
+  }
+
+  @Test
+  public void testRoutesEvaluatedOncePerRequest() throws Exception {
+    router.enableMetrics(true);
+    router.route().handler(RoutingContext::next);
+    router.route("/foo").handler(RoutingContext::next);
+    router.route("/foo").handler(rc -> rc.response().end());
+    for (int i = 0; i < 3; i++) {
+      testRequest(HttpMethod.GET, "/foo", 200, "OK");
+    }
+    testRequest(HttpMethod.GET, "/missing", 404, "Not Found");
+    RouterMetrics metrics = router.metrics();
+    // a single sample per request, whatever the number of handlers that called next
+    waitUntil(() -> metrics.routesEvaluated().stream().mapToLong(Long::longValue).sum() == 4);
+    Thread.sleep(100);
+    assertEquals(4, metrics.routesEvaluated().stream().mapToLong(Long::longValue).sum());
+  }
+
+  @Test
+  public void testLateRouteEvaluatedDirectly() throws Exception {
+    router.enableMetrics(true);
+    List<Route> routes = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      routes.add(router.get("/api/v2/op" + i + "/:id").handler(rc -> rc.response().end(rc.pathParam("id"))));
+    }
+    Route hot = routes.get(412);
+    for (int i = 0; i < 5; i++) {
+      testRequest(HttpMethod.GET, "/api/v2/op412/IBM", 200, "OK", "IBM");
+    }
+    RouterMetrics metrics = router.metrics();
+    assertEquals(5, metrics.hits(hot));
+    // the routes declared before the hot route are never evaluated
+    for (Route route : routes) {
+      assertEquals(0, metrics.failedMatches(route));
+    }
+    assertEquals(5, metrics.routesEvaluated().get(1).longValue());
+  }
 }
@@ -558,4 +558,130 @@ public class SubRouterTest extends WebTestBase {
     testRequest(HttpMethod.GET, "/primary/", 200, "Hi");
     testRequest(HttpMethod.GET, "/primary/random", 404, "Not Found");
   }
+
+  @Test
+  public void testFlatten() throws Exception {
+    Router subRouter = Router.router(vertx);
+
+    router.route("/subpath/*").handler(rc -> {
+      assertNull(rc.mountPoint());
+      rc.put("before", true);
+      rc.next();
+    });
+
+    router.mountSubRouter("/subpath", subRouter, true);
+
+    subRouter.route("/foo").handler(rc -> {
+      assertEquals("/subpath", rc.mountPoint());
+      assertTrue(rc.get("before"));
+      rc.next();
+    });
+    subRouter.get("/bar/:id").handler(rc -> {
+      assertEquals("/subpath", rc.mountPoint());
+      rc.response().setStatusMessage(rc.pathParam("id")).end();
+    });
+
+    router.route().handler(rc -> {
+      assertNull(rc.mountPoint());
+      rc.response().setStatusMessage(rc.request().path()).end();
+    });
+
+    testRequest(HttpMethod.GET, "/subpath/foo", 200, "/subpath/foo");
+    testRequest(HttpMethod.GET, "/subpath/bar/123", 200, "123");
+    testRequest(HttpMethod.GET, "/subpath/other", 200, "/subpath/other");
+    testRequest(HttpMethod.GET, "/otherpath", 200, "/otherpath");
+  }
+
+  @Test
+  public void testFlattenNested() throws Exception {
+    Router subRouter = Router.router(vertx);
+    Router subSubRouter = Router.router(vertx);
+
+    router.mountSubRouter("/api/", subRouter, true);
+    subRouter.mountSubRouter("/v1", subSubRouter, true);
+
+    subSubRouter.get("/").handler(rc -> {
+      assertEquals("/api/v1", rc.mountPoint());
+      rc.response().setStatusMessage("root").end();
+    });
+    subSubRouter.get("/users/:id").handler(rc -> {
+      assertEquals("/api/v1", rc.mountPoint());
+      rc.response().setStatusMessage(rc.pathParam("id")).end();
+    });
+    subRouter.get("/v1/*").handler(rc -> {
+      assertEquals("/api/", rc.mountPoint());
+      rc.response().setStatusMessage("fallback").end();
+    });
+
+    testRequest(HttpMethod.GET, "/api/v1", 200, "root");
+    testRequest(HttpMethod.GET, "/api/v1/", 200, "root");
+    testRequest(HttpMethod.GET, "/api/v1/users/123", 200, "123");
+    testRequest(HttpMethod.GET, "/api/v1/other", 200, "fallback");
+    testRequest(HttpMethod.GET, "/api/v2/users/123", 404, "Not Found");
+    testRequest(HttpMethod.GET, "/apiv1/users/123", 404, "Not Found");
+  }
+
+  @Test
+  public void testFlattenSameAsNested() throws Exception {
+    Router nested = Router.router(vertx);
+    Router flattened = Router.router(vertx);
+
+    for (Router subRouter : new Router[] { nested, flattened }) {
+      subRouter.get("/foo").handler(rc -> rc.response().setStatusMessage("foo").end());
+      subRouter.route("/fail").handler(rc -> rc.fail(557));
+      subRouter.route("/fail").failureHandler(rc -> rc.response().setStatusCode(rc.statusCode()).setStatusMessage("sub").end());
+      subRouter.route("/error").handler(rc -> rc.fail(558));
+    }
+
+    router.mountSubRouter("/nested", nested);
+    router.mountSubRouter("/flattened", flattened, true);
+    router.route().failureHandler(rc -> rc.response().setStatusCode(rc.statusCode()).setStatusMessage("parent").end());
+
+    for (String mountPoint : new String[] { "/nested", "/flattened" }) {
+      testRequest(HttpMethod.GET, mountPoint + "/foo", 200, "foo");
+      testRequest(HttpMethod.GET, mountPoint + "/fail", 557, "sub");
+      testRequest(HttpMethod.GET, mountPoint + "/error", 558, "parent");
+      // the sub router doesn't report the method not allowed
+      testRequest(HttpMethod.POST, mountPoint + "/foo", 404, "Not Found");
+      testRequest(HttpMethod.GET, mountPoint + "/bar", 404, "Not Found");
+    }
+  }
+
+  @Test
+  public void testFlattenChangedAfterRequest() throws Exception {
+    Router subRouter = Router.router(vertx);
+
+    Route mount = router.mountSubRouter("/subpath", subRouter, true);
+    subRouter.get("/foo").handler(rc -> rc.response().setStatusMessage("foo").end());
+
+    testRequest(HttpMethod.GET, "/subpath/foo", 200, "foo");
+    testRequest(HttpMethod.GET, "/subpath/bar", 404, "Not Found");
+
+    Route bar = subRouter.get("/bar").handler(rc -> rc.response().setStatusMessage("bar").end());
+    testRequest(HttpMethod.GET, "/subpath/bar", 200, "bar");
+
+    bar.path("/baz");
+    testRequest(HttpMethod.GET, "/subpath/bar", 404, "Not Found");
+    testRequest(HttpMethod.GET, "/subpath/baz", 200, "bar");
+
+    mount.disable();
+    testRequest(HttpMethod.GET, "/subpath/foo", 404, "Not Found");
+    mount.enable();
+    testRequest(HttpMethod.GET, "/subpath/foo", 200, "foo");
+  }
+
+  @Test
+  public void testFlattenWithParams() throws Exception {
+    Router subRouter = Router.router(vertx);
+
+    // mount points with parameters are not flattened but still work
+    router.mountSubRouter("/:tenant", subRouter, true);
+
+    subRouter.get("/foo").handler(rc -> {
+      assertEquals("/acme", rc.mountPoint());
+      rc.response().setStatusMessage(rc.pathParam("tenant")).end();
+    });
+
+    testRequest(HttpMethod.GET, "/acme/foo", 200, "acme");
+  }
 }
@@ -56,4 +56,23 @@ public class VirtualHostTest extends WebTestBase {
     testRequest(HttpMethod.GET, "/somepath", req -> req.setAuthority("www.mysite.com"), 200, "OK", null);
   }
 
+  @Test
+  public void testVHostExactHosts() throws Exception {
+    for (int i = 0; i < 40; i++) {
+      final String tenant = "tenant" + i;
+      router.get("/").virtualHost(tenant + ".example.com").handler(ctx -> ctx.response().setStatusMessage(tenant).end());
+    }
+    router.get("/").virtualHost("*.example.org").handler(ctx -> ctx.response().setStatusMessage("wildcard").end());
+    router.post("/").virtualHost("tenant1.example.com").handler(ctx -> ctx.response().end());
+
+    testRequest(HttpMethod.GET, "/", req -> req.setAuthority("tenant0.example.com"), 200, "tenant0", null);
+    testRequest(HttpMethod.GET, "/", req -> req.setAuthority("tenant39.example.com:8080"), 200, "tenant39", null);
+    testRequest(HttpMethod.GET, "/", req -> req.setAuthority("TENANT7.Example.COM"), 200, "tenant7", null);
+    testRequest(HttpMethod.GET, "/", req -> req.setAuthority("www.example.org"), 200, "wildcard", null);
+    testRequest(HttpMethod.GET, "/", req -> req.setAuthority("tenant40.example.com"), 404, "Not Found", null);
+    testRequest(HttpMethod.POST, "/", req -> req.setAuthority("tenant2.example.com"), 405, "Method Not Allowed", null);
+    // the routes for other hosts are not evaluated
+    testRequest(HttpMethod.POST, "/", req -> req.setAuthority("tenant40.example.com"), 404, "Not Found", null);
+    testRequest(HttpMethod.POST, "/", req -> req.setAuthority("tenant1.example.com"), 200, "OK", null);
+  }
 }
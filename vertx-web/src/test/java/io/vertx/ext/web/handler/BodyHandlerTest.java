@@ -16,13 +16,19 @@
 
 package io.vertx.ext.web.handler;
 
+import io.vertx.core.Context;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.web.FileUpload;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.RoutingContext;
@@ -37,7 +43,11 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
@@ -192,6 +202,259 @@ public class BodyHandlerTest extends WebTestBase {
     }, 200, "OK", null);
   }
 
+  @Test
+  public void testCompositeBodyBuffer() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setCompositeBodyBuffer(true));
+    Buffer buff = TestUtils.randomBuffer(100_000);
+    router.route().handler(rc -> {
+      assertEquals(buff, rc.getBody());
+      rc.response().end();
+    });
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      for (int i = 0; i < buff.length(); i += 1000) {
+        req.write(buff.slice(i, i + 1000));
+      }
+    }, 200, "OK", null);
+  }
+
+  @Test
+  public void testCompositeBodyJson() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setCompositeBodyBuffer(true));
+    JsonObject json = new JsonObject().put("foo", "bar").put("blah", 123).put("text", TestUtils.randomAlphaString(10_000));
+    router.route().handler(rc -> {
+      assertEquals(json, rc.getBodyAsJson());
+      assertEquals(json.encode(), rc.getBodyAsString());
+      rc.response().end();
+    });
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      String str = json.encode();
+      for (int i = 0; i < str.length(); i += 7) {
+        req.write(str.substring(i, Math.min(str.length(), i + 7)));
+      }
+    }, 200, "OK", null);
+  }
+
+  @Test
+  public void testCompositeBodyJsonArrayWithContentLength() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setCompositeBodyBuffer(true));
+    JsonArray json = new JsonArray().add("foo").add(123).add(new JsonObject().put("bar", true));
+    router.route().handler(rc -> {
+      assertEquals(json, rc.getBodyAsJsonArray());
+      rc.response().end();
+    });
+    Buffer body = json.toBuffer();
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(body.length()));
+      req.write(body.slice(0, 5));
+      req.write(body.slice(5, body.length()));
+    }, 200, "OK", null);
+  }
+
+  @Test
+  public void testCompositeBodyTooBig() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setCompositeBodyBuffer(true).setBodyLimit(5000));
+    Buffer buff = TestUtils.randomBuffer(5001);
+    router.route().handler(rc -> fail("Should not be called"));
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.write(buff);
+    }, 413, "Request Entity Too Large", null);
+  }
+
+  @Test
+  public void testJsonStreaming() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true));
+    JsonArray json = new JsonArray();
+    for (int i = 0; i < 1000; i++) {
+      json.add(new JsonObject().put("id", i).put("name", "record-" + i));
+    }
+    router.route().handler(rc -> {
+      assertNull(rc.getBody());
+      List<JsonObject> received = new ArrayList<>();
+      rc.getBodyAsJsonStream()
+        .handler(received::add)
+        .endHandler(v -> {
+          assertEquals(json, new JsonArray(received));
+          rc.response().end(String.valueOf(received.size()));
+        });
+    });
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=utf-8");
+      String str = json.encode();
+      for (int i = 0; i < str.length(); i += 100) {
+        req.write(str.substring(i, Math.min(str.length(), i + 100)));
+      }
+    }, 200, "OK", "1000");
+  }
+
+  @Test
+  public void testJsonStreamingHandlerSetLater() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true));
+    JsonArray json = new JsonArray();
+    for (int i = 0; i < 100; i++) {
+      json.add(new JsonObject().put("id", i));
+    }
+    router.route().handler(rc -> {
+      // the body is fully sent before there is a handler
+      vertx.setTimer(500, id -> {
+        List<JsonObject> received = new ArrayList<>();
+        rc.getBodyAsJsonStream()
+          .handler(received::add)
+          .endHandler(v -> {
+            assertEquals(json, new JsonArray(received));
+            rc.response().end(String.valueOf(received.size()));
+          });
+      });
+    });
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+      req.write(json.encode());
+    }, 200, "OK", "100");
+  }
+
+  @Test
+  public void testJsonStreamingHandlerSetAfterRequestEnded() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true));
+    JsonArray json = new JsonArray();
+    for (int i = 0; i < 100; i++) {
+      json.add(new JsonObject().put("id", i));
+    }
+    Promise<Void> sent = Promise.promise();
+    router.route().handler(rc -> {
+      Context context = vertx.getOrCreateContext();
+      // the client ended the request before there is a handler
+      sent.future().onComplete(ar -> context.runOnContext(v -> {
+        List<JsonObject> received = new ArrayList<>();
+        rc.getBodyAsJsonStream()
+          .handler(received::add)
+          .endHandler(end -> {
+            assertEquals(json, new JsonArray(received));
+            rc.response().end(String.valueOf(received.size()));
+          });
+      }));
+    });
+    client.request(HttpMethod.POST, "/").onComplete(onSuccess(req -> {
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+      req.onComplete(onSuccess(resp -> {
+        assertEquals(200, resp.statusCode());
+        resp.body(onSuccess(body -> {
+          assertEquals("100", body.toString());
+          testComplete();
+        }));
+      }));
+      req.end(json.encode(), onSuccess(v -> vertx.setTimer(100, id -> sent.complete())));
+    }));
+    await();
+  }
+
+  @Test
+  public void testJsonStreamingBackPressure() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true));
+    JsonArray json = new JsonArray();
+    for (int i = 0; i < 10; i++) {
+      json.add(new JsonObject().put("id", i));
+    }
+    router.route().handler(rc -> {
+      ReadStream<JsonObject> stream = rc.getBodyAsJsonStream();
+      AtomicInteger expected = new AtomicInteger();
+      stream.pause();
+      stream
+        .handler(obj -> {
+          assertEquals(expected.getAndIncrement(), (int) obj.getInteger("id"));
+          // one element at a time, the next one is only delivered on demand
+          vertx.setTimer(1, id -> stream.fetch(1));
+        })
+        .endHandler(v -> rc.response().end(String.valueOf(expected.get())));
+      stream.fetch(1);
+    });
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+      req.write(json.encode());
+    }, 200, "OK", "10");
+  }
+
+  @Test
+  public void testJsonStreamingSingleObject() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true));
+    JsonObject json = new JsonObject().put("foo", "bar");
+    router.route().handler(rc -> {
+      List<JsonObject> received = new ArrayList<>();
+      rc.getBodyAsJsonStream()
+        .handler(received::add)
+        .endHandler(v -> {
+          assertEquals(Collections.singletonList(json), received);
+          rc.response().end();
+        });
+    });
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "application/vnd.api+json");
+      req.write(json.encode());
+    }, 200, "OK", null);
+  }
+
+  @Test
+  public void testJsonStreamingInvalidElement() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true));
+    router.route().handler(rc -> rc.getBodyAsJsonStream()
+      .handler(obj -> {})
+      .endHandler(v -> fail("Should not end")));
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+      req.write("[{\"foo\":1},2]");
+    }, 400, "Bad Request", null);
+  }
+
+  @Test
+  public void testJsonStreamingTooBig() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true).setBodyLimit(100));
+    router.route().handler(rc -> rc.getBodyAsJsonStream()
+      .handler(obj -> {})
+      .endHandler(v -> fail("Should not end")));
+    JsonArray json = new JsonArray();
+    for (int i = 0; i < 100; i++) {
+      json.add(new JsonObject().put("id", i));
+    }
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+      req.write(json.encode());
+    }, 413, "Request Entity Too Large", null);
+  }
+
+  @Test
+  public void testJsonStreamingNotJson() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setJsonStreaming(true));
+    router.route().handler(rc -> {
+      assertNull(rc.getBodyAsJsonStream());
+      assertEquals("sausages", rc.getBodyAsString());
+      rc.response().end();
+    });
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.setChunked(true);
+      req.putHeader(HttpHeaders.CONTENT_TYPE, "text/plain");
+      req.write("sausages");
+    }, 200, "OK", null);
+  }
+
   @Test
   public void testBodyTooBig() throws Exception {
     router.clear();
@@ -216,6 +479,115 @@ public class BodyHandlerTest extends WebTestBase {
     }, 413, "Request Entity Too Large", null);
   }
 
+  @Test
+  public void testBodyLimitResolver() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create()
+      .setBodyLimitResolver(rc -> rc.request().path().startsWith("/small") ? 10L : null));
+    router.route().handler(rc -> rc.response().end());
+    Buffer buff = TestUtils.randomBuffer(100);
+    testRequest(HttpMethod.POST, "/small", req -> {
+      req.setChunked(true);
+      req.write(buff);
+    }, 413, "Request Entity Too Large", null);
+    testRequest(HttpMethod.POST, "/large", req -> {
+      req.setChunked(true);
+      req.write(buff);
+    }, 200, "OK", null);
+  }
+
+  @Test
+  public void testBodyTooBigContentLength() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setBodyLimit(500));
+    router.route().handler(rc -> fail("Should not be called"));
+    Buffer buff = TestUtils.randomBuffer(1000);
+    testRequest(HttpMethod.POST, "/", req -> {
+      req.putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(buff.length()));
+      req.write(buff);
+    }, 413, "Request Entity Too Large", null);
+  }
+
+  @Test
+  public void testExpectContinue() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setBodyLimit(500).setHandle100Continue(true));
+    Buffer buff = TestUtils.randomBuffer(100);
+    router.route().handler(rc -> {
+      assertEquals(buff, rc.getBody());
+      rc.response().end();
+    });
+    client.request(HttpMethod.POST, "/").onComplete(onSuccess(req -> {
+      req
+        .putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(buff.length()))
+        .putHeader("Expect", "100-continue")
+        .continueHandler(v -> req.end(buff));
+      req.onComplete(onSuccess(resp -> {
+        assertEquals(200, resp.statusCode());
+        testComplete();
+      }));
+      req.sendHead();
+    }));
+    await();
+  }
+
+  @Test
+  public void testExpectContinueHandledByServer() throws Exception {
+    router.clear();
+    // the default config leaves the 100 Continue to the server
+    router.route().handler(BodyHandler.create().setBodyLimit(500));
+    Buffer buff = TestUtils.randomBuffer(100);
+    router.route().handler(rc -> {
+      assertEquals(buff, rc.getBody());
+      rc.response().end();
+    });
+    HttpServer continueServer = vertx.createHttpServer(new HttpServerOptions()
+      .setPort(8081)
+      .setHost("localhost")
+      .setHandle100ContinueAutomatically(true));
+    AtomicInteger continues = new AtomicInteger();
+    continueServer.requestHandler(router).listen(onSuccess(s -> {
+      client.request(HttpMethod.POST, 8081, "localhost", "/").onComplete(onSuccess(req -> {
+        req
+          .putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(buff.length()))
+          .putHeader("Expect", "100-continue")
+          .continueHandler(v -> {
+            if (continues.incrementAndGet() == 1) {
+              req.end(buff);
+            }
+          });
+        req.onComplete(onSuccess(resp -> {
+          assertEquals(200, resp.statusCode());
+          // only the server sent a 100 Continue
+          assertEquals(1, continues.get());
+          testComplete();
+        }));
+        req.sendHead();
+      }));
+    }));
+    await();
+    continueServer.close();
+  }
+
+  @Test
+  public void testExpectContinueTooBig() throws Exception {
+    router.clear();
+    router.route().handler(BodyHandler.create().setBodyLimit(500).setHandle100Continue(true));
+    router.route().handler(rc -> fail("Should not be called"));
+    client.request(HttpMethod.POST, "/").onComplete(onSuccess(req -> {
+      req
+        .putHeader(HttpHeaders.CONTENT_LENGTH, "1000")
+        .putHeader("Expect", "100-continue")
+        .continueHandler(v -> fail("The body should not be sent"));
+      req.onComplete(onSuccess(resp -> {
+        assertEquals(413, resp.statusCode());
+        testComplete();
+      }));
+      req.sendHead();
+    }));
+    await();
+  }
+
   @Test
   public void testFileUploadSmallUpload() throws Exception {
     testFileUpload(BodyHandler.DEFAULT_UPLOADS_DIRECTORY, 50);
@@ -245,6 +617,71 @@ public class BodyHandlerTest extends WebTestBase {
     testFileUpload(dir.getPath(), 5000);
   }
 
+  @Test
+  public void testFileUploadWithBudget() throws Exception {
+    router.clear();
+    File dir = tempUploads.newFolder();
+    router.route().handler(BodyHandler.create().setUploadsDirectory(dir.getPath()).setUploadBudget(1024));
+    testFileUpload(dir.getPath(), 100_000);
+  }
+
+  @Test
+  public void testFileUploadInMemory() throws Exception {
+    router.clear();
+    File dir = tempUploads.newFolder();
+    router.route().handler(BodyHandler.create().setUploadsDirectory(dir.getPath()).setMaxInMemoryUploadSize(1024));
+    Buffer fileData = TestUtils.randomBuffer(500);
+    router.route().handler(rc -> {
+      Set<FileUpload> fileUploads = rc.fileUploads();
+      assertEquals(1, fileUploads.size());
+      FileUpload upload = fileUploads.iterator().next();
+      assertEquals("somename", upload.name());
+      assertEquals("somefile.dat", upload.fileName());
+      assertEquals(fileData.length(), upload.size());
+      assertNull(upload.uploadedFileName());
+      assertEquals(fileData, upload.content());
+      assertEquals(0, vertx.fileSystem().readDirBlocking(dir.getPath()).size());
+      rc.response().end();
+    });
+    sendFileUploadRequest(fileData, 200, "OK");
+  }
+
+  @Test
+  public void testFileUploadInMemoryTooLarge() throws Exception {
+    router.clear();
+    File dir = tempUploads.newFolder();
+    router.route().handler(BodyHandler.create().setUploadsDirectory(dir.getPath()).setMaxInMemoryUploadSize(1024));
+    testFileUpload(dir.getPath(), 20000);
+  }
+
+  @Test
+  public void testFileUploadInMemoryOverBudget() throws Exception {
+    router.clear();
+    File dir = tempUploads.newFolder();
+    router.route().handler(BodyHandler.create()
+      .setUploadsDirectory(dir.getPath())
+      .setMaxInMemoryUploadSize(10_000)
+      .setUploadBudget(1000));
+    // small enough to be kept in memory, but larger than the budget
+    testFileUpload(dir.getPath(), 5000);
+  }
+
+  @Test
+  public void testFileUploadUploadsDirRemoved() throws Exception {
+    router.clear();
+    File dir = tempUploads.newFolder();
+    router.route().handler(BodyHandler.create().setUploadsDirectory(dir.getPath()));
+    router.route().handler(rc -> rc.response().end());
+    Buffer fileData = TestUtils.randomBuffer(500);
+    sendFileUploadRequest(fileData, 200, "OK");
+    vertx.fileSystem().deleteRecursiveBlocking(dir.getPath(), true);
+    // the directory is not checked while uploads succeed
+    sendFileUploadRequest(fileData, 500, "Internal Server Error");
+    // then it is created again
+    sendFileUploadRequest(fileData, 200, "OK");
+    assertTrue(vertx.fileSystem().existsBlocking(dir.getPath()));
+  }
+
   private void testFileUpload(String uploadsDir, int size) throws Exception {
     String name = "somename";
     String fileName = "somefile.dat";
@@ -451,6 +888,27 @@ public class BodyHandlerTest extends WebTestBase {
     }, 200, "OK", null);
   }
 
+  @Test
+  public void testFormURLEncodedMergedParams() throws Exception {
+    router.route().handler(rc -> {
+      MultiMap params = rc.request().params();
+      assertEquals("foo", params.get("p1"));
+      assertEquals("admin", params.get("login"));
+      assertEquals("admin", rc.request().getParam("login"));
+      // modifying the params does not modify the form attributes
+      params.set("login", "root");
+      assertEquals("root", rc.request().params().get("login"));
+      assertEquals("admin", rc.request().formAttributes().get("login"));
+      rc.response().end();
+    });
+    testRequest(HttpMethod.POST, "/?p1=foo", req -> {
+      Buffer buffer = Buffer.buffer("login=admin");
+      req.headers().set("content-length", String.valueOf(buffer.length()));
+      req.headers().set("content-type", "application/x-www-form-urlencoded");
+      req.write(buffer);
+    }, 200, "OK", null);
+  }
+
   @Test
   public void testFormContentTypeIgnoreCase() throws Exception {
     router.route().handler(rc -> {
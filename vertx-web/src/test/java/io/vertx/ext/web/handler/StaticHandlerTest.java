@@ -16,6 +16,7 @@
 
 package io.vertx.ext.web.handler;
 
+import io.vertx.core.Vertx;
 import io.vertx.core.http.*;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.net.PemKeyCertOptions;
@@ -27,6 +28,7 @@ import io.vertx.ext.web.impl.Utils;
 import org.junit.Test;
 
 import java.io.File;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -256,6 +258,60 @@ public class StaticHandlerTest extends WebTestBase {
     latch.await();
   }
 
+  @Test
+  public void testHttp2PushSkippedForClientWithAssets() throws Exception {
+    List<Http2PushMapping> mappings = new ArrayList<>();
+    mappings.add(new Http2PushMapping("style.css", "style", false));
+    mappings.add(new Http2PushMapping("coin.png", "image", false));
+    stat.setHttp2PushMapping(mappings)
+        .setWebRoot("webroot/somedir3");
+    router.route().handler(stat);
+    HttpServer http2Server = vertx.createHttpServer(new HttpServerOptions()
+        .setUseAlpn(true)
+        .setSsl(true)
+        .setPemKeyCertOptions(new PemKeyCertOptions().setKeyPath("tls/server-key.pem").setCertPath("tls/server-cert.pem")));
+    http2Server.requestHandler(router).listen(8443);
+
+    HttpClientOptions options = new HttpClientOptions()
+      .setSsl(true)
+      .setUseAlpn(true)
+      .setProtocolVersion(HttpVersion.HTTP_2)
+      .setPemTrustOptions(new PemTrustOptions().addCertPath("tls/server-cert.pem"));
+    HttpClient client = vertx.createHttpClient(options);
+    CountDownLatch pushed = new CountDownLatch(3);
+    AtomicReference<String> cookie = new AtomicReference<>();
+    client.request(HttpMethod.GET, 8443, "localhost", "/testLinkPreload.html")
+      .onComplete(onSuccess(req -> {
+        req.onComplete(onSuccess(resp -> {
+          assertEquals(200, resp.statusCode());
+          cookie.set(resp.cookies().get(0));
+          pushed.countDown();
+        }))
+          .pushHandler(pushedReq -> pushedReq.onComplete(onSuccess(pushedResp -> {
+            assertEquals(200, pushedResp.statusCode());
+            assertNotNull(pushedResp.getHeader("content-type"));
+            assertNotNull(pushedResp.getHeader("last-modified"));
+            pushed.countDown();
+          })))
+          .end();
+      }));
+    awaitLatch(pushed);
+
+    // the client sends back the digest of the pushed files
+    String digest = cookie.get().substring(0, cookie.get().indexOf(';'));
+    client.request(HttpMethod.GET, 8443, "localhost", "/testLinkPreload.html")
+      .onComplete(onSuccess(req -> {
+        req.putHeader("cookie", digest);
+        req.onComplete(onSuccess(resp -> {
+          assertEquals(200, resp.statusCode());
+          resp.bodyHandler(body -> testComplete());
+        }))
+          .pushHandler(pushedReq -> fail("Pushed again"))
+          .end();
+      }));
+    await();
+  }
+
   @Test
   public void testSkipCompressionForMediaTypes() throws Exception {
     StaticHandler staticHandler = StaticHandler.create()
@@ -615,6 +671,15 @@ public class StaticHandlerTest extends WebTestBase {
     testDirectoryListingHtmlCustomTemplate(dirTemplate);
   }
 
+  @Test
+  public void testCustomDirectoryListingHtmlFilesTwice() throws Exception {
+    stat.setDirectoryListing(true);
+    String dirTemplate = "custom_dir_template_twice.html";
+    stat.setDirectoryTemplate(dirTemplate);
+
+    testDirectoryListingHtmlCustomTemplate(dirTemplate);
+  }
+
   private void testDirectoryListingHtmlCustomTemplate(String dirTemplateFile) throws Exception {
     stat.setDirectoryListing(true);
 
@@ -637,6 +702,55 @@ public class StaticHandlerTest extends WebTestBase {
     await();
   }
 
+  @Test
+  public void testDirectoryListingCached() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), dir = new File(webroot, "listing");
+    dir.mkdirs();
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    Files.write(new File(dir, "a.txt").toPath(), "a".getBytes());
+    Files.write(new File(dir, "b.txt").toPath(), "b".getBytes());
+    dir.setLastModified(System.currentTimeMillis() - 10000);
+
+    stat.setWebRoot(webroot.getPath());
+    stat.setDirectoryListing(true);
+
+    testRequest(HttpMethod.GET, "/listing/", null, res -> assertEquals("4", res.getHeader("content-length")), 200, "OK", "a.txt\nb.txt\n");
+    testRequest(HttpMethod.GET, "/listing/", req -> req.putHeader("accept", "application/json"), null, 200, "OK", "[\"a.txt\",\"b.txt\"]");
+    // the listing is rendered again once the directory changed
+    Files.write(new File(dir, "c.txt").toPath(), "c".getBytes());
+    dir.setLastModified(System.currentTimeMillis());
+    testRequest(HttpMethod.GET, "/listing/", null, null, 200, "OK", "a.txt\nb.txt\nc.txt\n");
+  }
+
+  @Test
+  public void testDirectoryListingLargeDirectory() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), dir = new File(webroot, "large");
+    dir.mkdirs();
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < 2000; i++) {
+      String name = String.format("some-rather-long-file-name-%05d.txt", i);
+      File file = new File(dir, name);
+      if (!file.exists()) {
+        Files.write(file.toPath(), new byte[0]);
+      }
+      expected.add(name);
+    }
+
+    stat.setWebRoot(webroot.getPath());
+    stat.setDirectoryListing(true);
+
+    CountDownLatch latch = new CountDownLatch(1);
+    testRequest(HttpMethod.GET, "/large/", req -> req.putHeader("accept", "application/json"), res -> res.bodyHandler(buff -> {
+      assertEquals(res.getHeader("content-length"), Integer.toString(buff.length()));
+      JsonArray arr = new JsonArray(buff);
+      assertEquals(expected, new HashSet<>(arr.getList()));
+      latch.countDown();
+    }), 200, "OK", null);
+    awaitLatch(latch);
+  }
+
   @Test
   public void testFSBlockingTuning() throws Exception {
     stat.setCachingEnabled(false);
@@ -785,6 +899,45 @@ public class StaticHandlerTest extends WebTestBase {
     await();
   }
 
+  @Test
+  public void testMultipleRanges() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), pageFile = new File(webroot, "ranges.txt");
+    webroot.mkdirs();
+    Files.write(pageFile.toPath(), "0123456789".getBytes());
+    String page = '/' + pageFile.getName();
+
+    stat.setWebRoot(webroot.getPath());
+    stat.setEnableRangeSupport(true);
+
+    CountDownLatch latch = new CountDownLatch(1);
+    testRequest(HttpMethod.GET, page, req -> req.headers().set("Range", "bytes=0-1, 4-5,-2"), res -> {
+      String contentType = res.headers().get("Content-Type");
+      assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+      String boundary = contentType.substring(contentType.indexOf('=') + 1);
+      res.bodyHandler(body -> {
+        assertEquals(res.headers().get("Content-Length"), Integer.toString(body.length()));
+        String textType = "Content-Type: text/plain;charset=" + Charset.defaultCharset().name() + "\r\n";
+        assertEquals(
+          "\r\n--" + boundary + "\r\n" + textType + "Content-Range: bytes 0-1/10\r\n\r\n01" +
+          "\r\n--" + boundary + "\r\n" + textType + "Content-Range: bytes 4-5/10\r\n\r\n45" +
+          "\r\n--" + boundary + "\r\n" + textType + "Content-Range: bytes 8-9/10\r\n\r\n89" +
+          "\r\n--" + boundary + "--\r\n", body.toString());
+        latch.countDown();
+      });
+    }, 206, "Partial Content", null);
+    awaitLatch(latch);
+
+    // a single satisfiable range is a plain partial response
+    testRequest(HttpMethod.GET, page, req -> req.headers().set("Range", "bytes=-3, 20-"), res -> {
+      assertEquals("bytes 7-9/10", res.headers().get("Content-Range"));
+    }, 206, "Partial Content", "789");
+    testRequest(HttpMethod.GET, page, req -> req.headers().set("Range", "bytes=20-, 30-"), res -> {
+      assertEquals("bytes */10", res.headers().get("Content-Range"));
+    }, 416, "Requested Range Not Satisfiable", null);
+    // overlapping ranges asking for more than the file get the whole file
+    testRequest(HttpMethod.GET, page, req -> req.headers().set("Range", "bytes=0-8, 1-9"), null, 200, "OK", "0123456789");
+  }
+
   @Test
   public void testContentTypeSupport() throws Exception {
     testRequest(HttpMethod.GET, "/somedir/range.jpg", req -> {
@@ -842,6 +995,16 @@ public class StaticHandlerTest extends WebTestBase {
     }, 200, "OK", "<html><body>Other page</body></html>");
   }
 
+  @Test
+  public void testDateHeader() throws Exception {
+    long before = System.currentTimeMillis();
+    testRequest(HttpMethod.GET, "/otherpage.html", null, res -> {
+      long date = Utils.parseRFC1123DateTime(res.headers().get("date"));
+      // the date has a one second precision
+      assertTrue(date >= before - 1000 && date <= System.currentTimeMillis());
+    }, 200, "OK", "<html><body>Other page</body></html>");
+  }
+
   @Test
   public void testChangeDefaultContentEncoding() throws Exception {
     stat.setDefaultContentEncoding("ISO-8859-1");
@@ -851,6 +1014,289 @@ public class StaticHandlerTest extends WebTestBase {
     }, 200, "OK", "<html><body>Other page</body></html>");
   }
 
+  @Test
+  public void testContentCache() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), pageFile = new File(webroot, "content-cache.txt");
+    webroot.mkdirs();
+    Files.write(pageFile.toPath(), "first".getBytes());
+    String page = '/' + pageFile.getName();
+
+    stat.setFilesReadOnly(false);
+    stat.setWebRoot(webroot.getPath());
+    stat.setCacheEntryTimeout(1);
+    stat.setMaxContentCacheSize(1024);
+
+    for (int i = 0; i < 3; i++) {
+      testRequest(HttpMethod.GET, page, null, res -> {
+        assertEquals("text/plain;charset=" + Charset.defaultCharset().name(), res.headers().get("content-type"));
+        assertEquals("5", res.headers().get("content-length"));
+      }, 200, "OK", "first");
+      Thread.sleep(10);
+    }
+    // the cached content is revalidated
+    Files.write(pageFile.toPath(), "second".getBytes());
+    pageFile.setLastModified(pageFile.lastModified() + 2000);
+    Thread.sleep(10);
+    testRequest(HttpMethod.GET, page, 200, "OK", "second");
+    Thread.sleep(10);
+    testRequest(HttpMethod.GET, page, 200, "OK", "second");
+  }
+
+  @Test
+  public void testContentCacheHitWithoutFileSystem() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), pageFile = new File(webroot, "content-cache-hit.txt");
+    webroot.mkdirs();
+    Files.write(pageFile.toPath(), "cached".getBytes());
+    String page = '/' + pageFile.getName();
+
+    stat.setFilesReadOnly(false);
+    stat.setWebRoot(webroot.getPath());
+    stat.setCacheEntryTimeout(3600 * 1000);
+    stat.setMaxContentCacheSize(1024);
+
+    testRequest(HttpMethod.GET, page, 200, "OK", "cached");
+    // the content is loaded in the background
+    Thread.sleep(100);
+    // while the cache entry is valid, a hit is served from memory without even checking the file
+    assertTrue(pageFile.delete());
+    testRequest(HttpMethod.GET, page, 200, "OK", "cached");
+  }
+
+  @Test
+  public void testServePrecompressed() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), pageFile = new File(webroot, "precompressed.txt");
+    webroot.mkdirs();
+    Files.write(pageFile.toPath(), "plain".getBytes());
+    File gzFile = new File(webroot, "precompressed.txt.gz");
+    Files.write(gzFile.toPath(), "gzip".getBytes());
+    File brFile = new File(webroot, "precompressed.txt.br");
+    Files.write(brFile.toPath(), "brotli".getBytes());
+    gzFile.setLastModified(pageFile.lastModified());
+    brFile.setLastModified(pageFile.lastModified());
+    String page = '/' + pageFile.getName();
+
+    stat.setWebRoot(webroot.getPath());
+    stat.setServePrecompressed(true);
+
+    testRequest(HttpMethod.GET, page, null, res -> {
+      assertNull(res.headers().get("content-encoding"));
+      assertEquals("accept-encoding", res.headers().get("vary"));
+    }, 200, "OK", "plain");
+    testRequest(HttpMethod.GET, page, req -> req.putHeader("accept-encoding", "gzip, deflate"), res -> {
+      assertEquals("gzip", res.headers().get("content-encoding"));
+      assertEquals("text/plain;charset=" + Charset.defaultCharset().name(), res.headers().get("content-type"));
+      assertEquals("4", res.headers().get("content-length"));
+      assertEquals("accept-encoding", res.headers().get("vary"));
+    }, 200, "OK", "gzip");
+    testRequest(HttpMethod.GET, page, req -> req.putHeader("accept-encoding", "gzip;q=0.5, br"), res -> {
+      assertEquals("br", res.headers().get("content-encoding"));
+    }, 200, "OK", "brotli");
+    testRequest(HttpMethod.GET, page, req -> req.putHeader("accept-encoding", "identity, gzip;q=0.5"), res -> {
+      assertNull(res.headers().get("content-encoding"));
+    }, 200, "OK", "plain");
+    testRequest(HttpMethod.GET, page, req -> req.putHeader("accept-encoding", "br;q=0, *"), res -> {
+      assertEquals("gzip", res.headers().get("content-encoding"));
+    }, 200, "OK", "gzip");
+  }
+
+  @Test
+  public void testCreatePrecompressed() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), pageFile = new File(webroot, "compressible.txt");
+    webroot.mkdirs();
+    char[] content = new char[4096];
+    Arrays.fill(content, 'a');
+    Files.write(pageFile.toPath(), new String(content).getBytes());
+    File gzFile = new File(webroot, "compressible.txt.gz");
+    gzFile.delete();
+    String page = '/' + pageFile.getName();
+
+    stat.setWebRoot(webroot.getPath());
+    stat.setServePrecompressed(true);
+    stat.setCreatePrecompressed(true);
+
+    // the first response races with the compression
+    testRequest(HttpMethod.GET, page, req -> req.putHeader("accept-encoding", "gzip"), null, 200, "OK", null);
+    waitUntil(gzFile::exists);
+    // the handler forgets the missing file once it is written
+    Thread.sleep(100);
+    testRequest(HttpMethod.GET, page, req -> req.putHeader("accept-encoding", "gzip"), res -> {
+      assertEquals("gzip", res.headers().get("content-encoding"));
+      assertEquals(Long.toString(gzFile.length()), res.headers().get("content-length"));
+    }, 200, "OK", null);
+  }
+
+  @Test
+  public void testETag() throws Exception {
+    stat.setEnableETag(true);
+    AtomicReference<String> etag = new AtomicReference<>();
+    testRequest(HttpMethod.GET, "/otherpage.html", null, res -> {
+      etag.set(res.headers().get("etag"));
+      assertNotNull(etag.get());
+      assertTrue(etag.get().startsWith("\""));
+      assertNotNull(res.headers().get("last-modified"));
+    }, 200, "OK", "<html><body>Other page</body></html>");
+    // revalidated from the cached properties
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-none-match", etag.get()), res -> {
+      assertEquals(etag.get(), res.headers().get("etag"));
+      assertEquals("public, immutable, max-age=" + StaticHandler.DEFAULT_MAX_AGE_SECONDS, res.headers().get("cache-control"));
+    }, 304, "Not Modified", null);
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-none-match", "\"other\", " + etag.get()), null, 304, "Not Modified", null);
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req.putHeader("if-none-match", "W/" + etag.get()), null, 304, "Not Modified", null);
+    // the tag takes precedence over the date
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req
+      .putHeader("if-none-match", "\"other\"")
+      .putHeader("if-modified-since", Utils.formatRFC1123DateTime(System.currentTimeMillis())), null, 200, "OK", "<html><body>Other page</body></html>");
+    testRequest(HttpMethod.GET, "/otherpage.html", req -> req
+      .putHeader("if-none-match", etag.get())
+      .putHeader("cache-control", "no-cache"), null, 200, "OK", "<html><body>Other page</body></html>");
+  }
+
+  @Test
+  public void testContentHashETag() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), pageFile = new File(webroot, "hashed.txt");
+    webroot.mkdirs();
+    Files.write(pageFile.toPath(), "hashed".getBytes());
+    String page = '/' + pageFile.getName();
+    String hash = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(
+      java.security.MessageDigest.getInstance("SHA-256").digest("hashed".getBytes())) + '"';
+
+    stat.setWebRoot(webroot.getPath());
+    stat.setEnableETag(true);
+    stat.setContentHashETag(true);
+
+    // the hash is computed in the background
+    testRequest(HttpMethod.GET, page, null, res -> assertNotNull(res.headers().get("etag")), 200, "OK", "hashed");
+    waitUntil(() -> {
+      CountDownLatch latch = new CountDownLatch(1);
+      AtomicReference<String> etag = new AtomicReference<>();
+      client.request(HttpMethod.GET, 8080, "localhost", page).onComplete(onSuccess(req -> {
+        req.onComplete(onSuccess(res -> {
+          etag.set(res.getHeader("etag"));
+          latch.countDown();
+        }));
+        req.end();
+      }));
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return hash.equals(etag.get());
+    });
+    testRequest(HttpMethod.GET, page, req -> req.putHeader("if-none-match", hash), null, 304, "Not Modified", null);
+  }
+
+  @Test
+  public void testWarm() throws Exception {
+    // the default web root is in the classpath
+    stat.warm(vertx).onComplete(onSuccess(v -> testComplete()));
+    await();
+    testRequest(HttpMethod.GET, "/otherpage.html", 200, "OK", "<html><body>Other page</body></html>");
+  }
+
+  @Test
+  public void testWarmFileSystem() throws Exception {
+    File webroot = new File("target/.vertx/webroot"), pageFile = new File(webroot, "warm/page.txt");
+    pageFile.getParentFile().mkdirs();
+    Files.write(pageFile.toPath(), "warm".getBytes());
+
+    stat.setWebRoot(webroot.getPath());
+    stat.warm(vertx).onComplete(onSuccess(v -> testComplete()));
+    await();
+    testRequest(HttpMethod.GET, "/warm/page.txt", 200, "OK", "warm");
+  }
+
+  @Test
+  public void testWatchWebRoot() throws Exception {
+    File webroot = new File("target/.vertx/watched"), pageFile = new File(webroot, "watched.html");
+    webroot.mkdirs();
+    Files.write(pageFile.toPath(), "<html><body>Watched</body></html>".getBytes());
+    String page = '/' + pageFile.getName();
+    long modified = Utils.secondsFactor(pageFile.lastModified());
+
+    stat.setFilesReadOnly(false);
+    stat.setCacheEntryTimeout(3600 * 1000);
+    stat.setWebRoot(webroot.getPath());
+    stat.setWatchWebRoot(true);
+
+    testRequest(HttpMethod.GET, page, null, res -> {
+      assertEquals(modified, toDateTime(res.headers().get("last-modified")));
+    }, 200, "OK", "<html><body>Watched</body></html>");
+
+    // the cache entry doesn't time out but the change is seen
+    pageFile.setLastModified(modified + 10000);
+    AtomicReference<String> lastModified = new AtomicReference<>();
+    long deadline = System.currentTimeMillis() + 20000;
+    while (System.currentTimeMillis() < deadline) {
+      testRequest(HttpMethod.GET, page, null, res -> lastModified.set(res.headers().get("last-modified")), 200, "OK", null);
+      if (toDateTime(lastModified.get()) == modified + 10000) {
+        break;
+      }
+      Thread.sleep(100);
+    }
+    assertEquals(modified + 10000, toDateTime(lastModified.get()));
+
+    // a new file is seen too
+    File newFile = new File(webroot, "created.html");
+    newFile.delete();
+    testRequest(HttpMethod.GET, "/created.html", 404, "Not Found");
+    Files.write(newFile.toPath(), "created".getBytes());
+    deadline = System.currentTimeMillis() + 20000;
+    AtomicReference<Integer> status = new AtomicReference<>();
+    while (System.currentTimeMillis() < deadline) {
+      CountDownLatch latch = new CountDownLatch(1);
+      client.request(HttpMethod.GET, 8080, "localhost", "/created.html").onComplete(onSuccess(req -> {
+        req.onComplete(onSuccess(res -> {
+          status.set(res.statusCode());
+          latch.countDown();
+        }));
+        req.end();
+      }));
+      awaitLatch(latch);
+      if (status.get() == 200) {
+        break;
+      }
+      Thread.sleep(100);
+    }
+    assertEquals(200, status.get().intValue());
+    stat.setWatchWebRoot(false);
+  }
+
+  @Test
+  public void testWatchWebRootClosedWithVertx() throws Exception {
+    File webroot = new File("target/.vertx/watched-close");
+    webroot.mkdirs();
+    Files.write(new File(webroot, "page.html").toPath(), "page".getBytes());
+
+    Vertx other = Vertx.vertx();
+    Router otherRouter = Router.router(other);
+    otherRouter.route().handler(StaticHandler.create(webroot.getPath()).setWatchWebRoot(true));
+    CountDownLatch listening = new CountDownLatch(1);
+    other.createHttpServer().requestHandler(otherRouter).listen(8081, "localhost", onSuccess(s -> listening.countDown()));
+    awaitLatch(listening);
+
+    // the watcher is started by the first request
+    CountDownLatch served = new CountDownLatch(1);
+    client.request(HttpMethod.GET, 8081, "localhost", "/page.html").onComplete(onSuccess(req -> {
+      req.onComplete(onSuccess(res -> {
+        assertEquals(200, res.statusCode());
+        served.countDown();
+      }));
+      req.end();
+    }));
+    awaitLatch(served);
+    assertTrue(watcherRunning());
+
+    CountDownLatch closed = new CountDownLatch(1);
+    other.close(onSuccess(v -> closed.countDown()));
+    awaitLatch(closed);
+    long deadline = System.currentTimeMillis() + 10000;
+    while (watcherRunning() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(watcherRunning());
+  }
+
   @Test
   public void testHandlerAfter() throws Exception {
     router.get().handler(ctx -> ctx.response().end("Howdy!"));
@@ -875,6 +1321,11 @@ public class StaticHandlerTest extends WebTestBase {
   // 1.Test all the params including invalid values
   // 2. Make sure exists isn't being called too many times
 
+  private static boolean watcherRunning() {
+    return Thread.getAllStackTraces().keySet().stream()
+      .anyMatch(thread -> thread.isAlive() && thread.getName().equals("vertx-web-static-watcher"));
+  }
+
   private long toDateTime(String header) {
     try {
       return  Utils.parseRFC1123DateTime(header);
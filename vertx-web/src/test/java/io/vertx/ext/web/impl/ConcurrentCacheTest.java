@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Red Hat, Inc.
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  and Apache License v2.0 which accompanies this distribution.
+ *
+ *  The Eclipse Public License is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ *  The Apache License v2.0 is available at
+ *  http://www.opensource.org/licenses/apache2.0.php
+ *
+ *  You may elect to redistribute this code under either of these licenses.
+ */
+package io.vertx.ext.web.impl;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentCacheTest {
+
+  @Test
+  public void testPut() {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(10);
+    for (int i = 0; i < 20; i++) {
+      cache.put("key" + i, "value" + i);
+    }
+    assertEquals(10, cache.size());
+    assertEquals(10, cache.weight());
+    assertEquals(10, cache.evictions());
+    for (int i = 10; i < 20; i++) {
+      assertEquals("value" + i, cache.get("key" + i));
+    }
+  }
+
+  @Test
+  public void testReferencedEntriesAreKept() {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(10);
+    for (int i = 0; i < 10; i++) {
+      cache.put("key" + i, "value" + i);
+    }
+    assertEquals("value0", cache.get("key0"));
+    cache.put("key10", "value10");
+    assertEquals("value0", cache.get("key0"));
+    assertNull(cache.get("key1"));
+  }
+
+  @Test
+  public void testFrequentEntriesAreAdmitted() {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(10);
+    for (int i = 0; i < 10; i++) {
+      cache.put("hot" + i, "value" + i);
+      for (int j = 0; j < 3; j++) {
+        cache.get("hot" + i);
+      }
+    }
+    // a scan of keys accessed once doesn't flush the frequent keys
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.get("cold" + i));
+      cache.put("cold" + i, "value" + i);
+    }
+    assertEquals(10, cache.size());
+    // a key accessed more often than the frequent keys is admitted
+    for (int i = 0; i < 10; i++) {
+      cache.get("new");
+    }
+    cache.put("new", "value");
+    assertEquals("value", cache.get("new"));
+    int hot = 0;
+    for (int i = 0; i < 10; i++) {
+      if (cache.get("hot" + i) != null) {
+        hot++;
+      }
+    }
+    assertEquals(9, hot);
+  }
+
+  @Test
+  public void testReplace() {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(100, 0);
+    cache.put("key", "value", 10);
+    cache.put("key", "other", 20);
+    assertEquals(1, cache.size());
+    assertEquals(20, cache.weight());
+    assertEquals("other", cache.get("key"));
+  }
+
+  @Test
+  public void testWeight() {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(100, 0);
+    cache.put("a", "a", 40);
+    cache.put("b", "b", 40);
+    cache.put("c", "c", 40);
+    assertEquals(80, cache.weight());
+    assertNull(cache.get("a"));
+    // heavier than the cache
+    cache.put("d", "d", 101);
+    assertNull(cache.get("d"));
+    assertEquals(80, cache.weight());
+    cache.setMaxWeight(50);
+    assertEquals(1, cache.size());
+    assertEquals(40, cache.weight());
+  }
+
+  @Test
+  public void testRemove() {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(10);
+    for (int i = 0; i < 10; i++) {
+      cache.put("key" + i, "value" + i);
+    }
+    for (int i = 0; i < 10; i++) {
+      assertEquals("value" + i, cache.remove("key" + i));
+    }
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.weight());
+    assertNull(cache.remove("key0"));
+  }
+
+  @Test
+  public void testTimeToLive() throws Exception {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(10, 50);
+    cache.put("key", "value");
+    cache.put("forever", "value", 1, 0);
+    assertEquals("value", cache.get("key"));
+    Thread.sleep(100);
+    assertNull(cache.get("key"));
+    assertEquals("value", cache.get("forever"));
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.weight());
+  }
+
+  @Test
+  public void testCounters() {
+    ConcurrentCache<String, String> cache = new ConcurrentCache<>(1);
+    cache.put("a", "a");
+    cache.get("a");
+    cache.get("b");
+    cache.put("b", "b");
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(1, cache.evictions());
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(100);
+    int threads = 8;
+    CountDownLatch latch = new CountDownLatch(threads);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    for (int t = 0; t < threads; t++) {
+      new Thread(() -> {
+        try {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(1000);
+            switch (random.nextInt(3)) {
+              case 0:
+                cache.put(key, key);
+                break;
+              case 1:
+                Integer value = cache.get(key);
+                if (value != null && value != key) {
+                  throw new AssertionError("Unexpected value " + value + " for " + key);
+                }
+                break;
+              default:
+                cache.remove(key);
+            }
+          }
+        } catch (Throwable e) {
+          failure.set(e);
+        } finally {
+          latch.countDown();
+        }
+      }).start();
+    }
+    latch.await();
+    assertNull(failure.get());
+    // the weight is consistent with the entries once the cache is quiet
+    assertEquals(cache.size(), cache.weight());
+    assertTrue(cache.size() <= 100);
+  }
+}
@@ -0,0 +1,80 @@
+package io.vertx.ext.web.impl;
+
+import io.vertx.core.MultiMap;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class MergedParamsTest {
+
+  private MultiMap params = MultiMap.caseInsensitiveMultiMap().add("p1", "foo").add("both", "query");
+  private MultiMap form = MultiMap.caseInsensitiveMultiMap().add("attr1", "Tim").add("both", "form");
+
+  @Test
+  public void testRead() {
+    MultiMap merged = new MergedParams(params, form);
+
+    assertEquals("foo", merged.get("p1"));
+    assertEquals("Tim", merged.get("ATTR1"));
+    // the params come first
+    assertEquals("query", merged.get("both"));
+    assertEquals(Arrays.asList("query", "form"), merged.getAll("both"));
+    assertEquals(Collections.emptyList(), merged.getAll("missing"));
+    assertTrue(merged.contains("attr1"));
+    assertFalse(merged.contains("missing"));
+    assertEquals(3, merged.names().size());
+    assertEquals(4, merged.entries().size());
+    int count = 0;
+    for (Object ignore : merged) {
+      count++;
+    }
+    assertEquals(4, count);
+    assertFalse(merged.isEmpty());
+  }
+
+  @Test
+  public void testAddDoesNotCopy() {
+    MultiMap merged = new MergedParams(params, form);
+
+    merged.add("p2", "bar");
+
+    assertEquals("bar", merged.get("p2"));
+    assertEquals("bar", params.get("p2"));
+    assertFalse(form.contains("p2"));
+  }
+
+  @Test
+  public void testMutationMaterializes() {
+    MergedParams merged = new MergedParams(params, form);
+
+    merged.set("attr1", "Julien");
+
+    assertEquals("Julien", merged.get("attr1"));
+    assertEquals(Collections.singletonList("Julien"), merged.getAll("attr1"));
+    // the original maps are left untouched
+    assertEquals("Tim", form.get("attr1"));
+    assertFalse(params.contains("attr1"));
+    assertNotSame(params, merged.params());
+
+    merged.remove("both");
+    assertFalse(merged.contains("both"));
+    assertTrue(params.contains("both"));
+    assertTrue(form.contains("both"));
+  }
+
+  @Test
+  public void testClear() {
+    MultiMap merged = new MergedParams(params, form);
+
+    merged.clear();
+
+    assertTrue(merged.isEmpty());
+    assertNull(merged.get("attr1"));
+    // as when the attributes were copied in the params
+    assertTrue(params.isEmpty());
+    assertFalse(form.isEmpty());
+  }
+}